@@ -70,7 +70,9 @@ public class StorageContext implements ApplicationListener<ApplicationContextEve
             instance.storageManager.initAfter();
             logger.info("Storage started successfully and cost [{}] seconds", stopWatch.costSeconds());
         } else if (event instanceof ContextClosedEvent) {
-
+            if (instance != null) {
+                instance.storageManager.shutdown();
+            }
         }
     }
 
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.collection;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 以InputStream的方式读取ByteBuffer，buffer需要是调用方独占的（比如duplicate出来的）
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    public ByteBufferInputStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+        return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        var size = Math.min(length, buffer.remaining());
+        buffer.get(bytes, offset, size);
+        return size;
+    }
+
+    @Override
+    public long skip(long n) {
+        if (n <= 0) {
+            return 0;
+        }
+        var size = (int) Math.min(n, buffer.remaining());
+        buffer.position(buffer.position() + size);
+        return size;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+
+}
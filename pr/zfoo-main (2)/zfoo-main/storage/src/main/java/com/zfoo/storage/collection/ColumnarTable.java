@@ -0,0 +1,427 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.collection;
+
+import com.zfoo.protocol.exception.RunException;
+import com.zfoo.protocol.util.ReflectionUtils;
+import com.zfoo.storage.model.vo.IdDef;
+import com.zfoo.storage.model.vo.IndexDef;
+import com.zfoo.storage.util.FieldAccessor;
+import com.zfoo.storage.util.ResourceAccessor;
+
+import java.util.*;
+
+/**
+ * 按列保存的配置表，int，long，float，double，short，byte属性保存为基本类型数组，boolean属性保存为BitSet，
+ * short，byte，boolean的包装类型额外使用一个BitSet记录null，字符串属性使用字典编码，其它属性保存为Object数组
+ * <p>
+ * 行对象在访问的时候才生成，按列遍历的时候可以直接使用基本类型数组，没有装箱也没有行对象
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class ColumnarTable<K, V> extends RowTable<K, V> {
+
+    private final ResourceAccessor<V> accessor;
+    private final Column[] columns;
+    private final Map<String, Column> columnMap = new HashMap<>();
+
+    private ColumnarTable(Class<V> clazz, KeyColumn ids, Column[] columns, int cacheSize) {
+        super(clazz, ids, cacheSize);
+        this.accessor = ResourceAccessor.valueOf(clazz);
+        this.columns = columns;
+        for (var column : columns) {
+            columnMap.put(column.accessor.getField().getName(), column);
+        }
+    }
+
+    /**
+     * 把已经加载好的行对象转换为列存储，转换完成后行对象就可以被回收
+     */
+    public static <K, V> ColumnarTable<K, V> build(Class<V> clazz, Collection<V> values, IdDef idDef, Map<String, IndexDef> indexDefMap, int cacheSize) {
+        var rows = new ArrayList<>(values);
+        var size = rows.size();
+
+        var fields = ReflectionUtils.notStaticAndTransientFields(clazz);
+        var columns = new Column[fields.size()];
+        for (var i = 0; i < fields.size(); i++) {
+            columns[i] = Column.valueOf(FieldAccessor.valueOf(fields.get(i)), size);
+        }
+
+        var ids = KeyColumn.valueOf(idDef.getField().getType(), size);
+        var indexKeys = new HashMap<String, Object[]>();
+        indexDefMap.keySet().forEach(it -> indexKeys.put(it, new Object[size]));
+        for (var row = 0; row < size; row++) {
+            var value = rows.get(row);
+            ids.set(row, idDef.getAccessor().get(value));
+            for (var column : columns) {
+                column.read(value, row);
+            }
+            for (var entry : indexDefMap.entrySet()) {
+                indexKeys.get(entry.getKey())[row] = entry.getValue().getAccessor().get(value);
+            }
+        }
+
+        for (var column : columns) {
+            column.finish();
+        }
+
+        var table = new ColumnarTable<K, V>(clazz, ids, columns, cacheSize);
+        indexDefMap.forEach((name, indexDef) -> table.addIndex(name, indexDef.isUnique(), indexKeys.get(name)));
+        return table;
+    }
+
+    @Override
+    protected V decode(int row) {
+        var instance = accessor.newInstance();
+        for (var column : columns) {
+            column.inject(instance, row);
+        }
+        return instance;
+    }
+
+    /**
+     * 下面的方法返回的是内部的数组，下标为行号，调用方不能修改
+     */
+    public int[] intColumn(String fieldName) {
+        return column(fieldName, IntColumn.class).values;
+    }
+
+    public long[] longColumn(String fieldName) {
+        return column(fieldName, LongColumn.class).values;
+    }
+
+    public float[] floatColumn(String fieldName) {
+        return column(fieldName, FloatColumn.class).values;
+    }
+
+    public double[] doubleColumn(String fieldName) {
+        return column(fieldName, DoubleColumn.class).values;
+    }
+
+    /**
+     * short，byte，boolean的包装类型也可以按基本类型读取，null读取为0或者false
+     */
+    public short[] shortColumn(String fieldName) {
+        return column(fieldName, ShortColumn.class).values;
+    }
+
+    public byte[] byteColumn(String fieldName) {
+        return column(fieldName, ByteColumn.class).values;
+    }
+
+    public BitSet booleanColumn(String fieldName) {
+        return column(fieldName, BooleanColumn.class).values;
+    }
+
+    private <C extends Column> C column(String fieldName, Class<C> columnClazz) {
+        var column = columnMap.get(fieldName);
+        if (column == null) {
+            throw new RunException("资源类[class:{}]没有属性[field:{}]", clazz.getSimpleName(), fieldName);
+        }
+        if (!columnClazz.isInstance(column)) {
+            throw new RunException("资源类[class:{}]的属性[field:{}]的类型为[{}]，不能按[{}]读取", clazz.getSimpleName(), fieldName, column.accessor.getField().getType().getSimpleName(), columnClazz.getSimpleName());
+        }
+        return columnClazz.cast(column);
+    }
+
+    private abstract static class Column {
+        protected final FieldAccessor accessor;
+
+        Column(FieldAccessor accessor) {
+            this.accessor = accessor;
+        }
+
+        static Column valueOf(FieldAccessor accessor, int size) {
+            var type = accessor.getField().getType();
+            if (type == int.class) {
+                return new IntColumn(accessor, size);
+            } else if (type == long.class) {
+                return new LongColumn(accessor, size);
+            } else if (type == float.class) {
+                return new FloatColumn(accessor, size);
+            } else if (type == double.class) {
+                return new DoubleColumn(accessor, size);
+            } else if (type == short.class || type == Short.class) {
+                return new ShortColumn(accessor, size);
+            } else if (type == byte.class || type == Byte.class) {
+                return new ByteColumn(accessor, size);
+            } else if (type == boolean.class || type == Boolean.class) {
+                return new BooleanColumn(accessor, size);
+            } else if (type == String.class) {
+                return new StringColumn(accessor, size);
+            }
+            return new ObjectColumn(accessor, size);
+        }
+
+        abstract void read(Object instance, int row);
+
+        abstract void inject(Object instance, int row);
+
+        /**
+         * 所有的行读取完成，释放只在转换时使用的数据
+         */
+        void finish() {
+        }
+    }
+
+    private static class IntColumn extends Column {
+        private final int[] values;
+
+        IntColumn(FieldAccessor accessor, int size) {
+            super(accessor);
+            this.values = new int[size];
+        }
+
+        @Override
+        void read(Object instance, int row) {
+            values[row] = (int) accessor.get(instance);
+        }
+
+        @Override
+        void inject(Object instance, int row) {
+            accessor.setInt(instance, values[row]);
+        }
+    }
+
+    private static class LongColumn extends Column {
+        private final long[] values;
+
+        LongColumn(FieldAccessor accessor, int size) {
+            super(accessor);
+            this.values = new long[size];
+        }
+
+        @Override
+        void read(Object instance, int row) {
+            values[row] = (long) accessor.get(instance);
+        }
+
+        @Override
+        void inject(Object instance, int row) {
+            accessor.setLong(instance, values[row]);
+        }
+    }
+
+    private static class FloatColumn extends Column {
+        private final float[] values;
+
+        FloatColumn(FieldAccessor accessor, int size) {
+            super(accessor);
+            this.values = new float[size];
+        }
+
+        @Override
+        void read(Object instance, int row) {
+            values[row] = (float) accessor.get(instance);
+        }
+
+        @Override
+        void inject(Object instance, int row) {
+            accessor.setFloat(instance, values[row]);
+        }
+    }
+
+    private static class DoubleColumn extends Column {
+        private final double[] values;
+
+        DoubleColumn(FieldAccessor accessor, int size) {
+            super(accessor);
+            this.values = new double[size];
+        }
+
+        @Override
+        void read(Object instance, int row) {
+            values[row] = (double) accessor.get(instance);
+        }
+
+        @Override
+        void inject(Object instance, int row) {
+            accessor.setDouble(instance, values[row]);
+        }
+    }
+
+    /**
+     * 包装类型的列，基本类型的列中nulls为null
+     */
+    private abstract static class NullableColumn extends Column {
+        protected final BitSet nulls;
+
+        NullableColumn(FieldAccessor accessor) {
+            super(accessor);
+            this.nulls = accessor.getField().getType().isPrimitive() ? null : new BitSet();
+        }
+
+        @Override
+        void read(Object instance, int row) {
+            var value = accessor.get(instance);
+            if (value == null) {
+                nulls.set(row);
+                return;
+            }
+            readValue(value, row);
+        }
+
+        @Override
+        void inject(Object instance, int row) {
+            if (nulls == null) {
+                injectPrimitive(instance, row);
+            } else {
+                accessor.set(instance, nulls.get(row) ? null : boxedValue(row));
+            }
+        }
+
+        abstract void readValue(Object value, int row);
+
+        abstract void injectPrimitive(Object instance, int row);
+
+        abstract Object boxedValue(int row);
+    }
+
+    private static class ShortColumn extends NullableColumn {
+        private final short[] values;
+
+        ShortColumn(FieldAccessor accessor, int size) {
+            super(accessor);
+            this.values = new short[size];
+        }
+
+        @Override
+        void readValue(Object value, int row) {
+            values[row] = (short) value;
+        }
+
+        @Override
+        void injectPrimitive(Object instance, int row) {
+            accessor.setShort(instance, values[row]);
+        }
+
+        @Override
+        Object boxedValue(int row) {
+            return values[row];
+        }
+    }
+
+    private static class ByteColumn extends NullableColumn {
+        private final byte[] values;
+
+        ByteColumn(FieldAccessor accessor, int size) {
+            super(accessor);
+            this.values = new byte[size];
+        }
+
+        @Override
+        void readValue(Object value, int row) {
+            values[row] = (byte) value;
+        }
+
+        @Override
+        void injectPrimitive(Object instance, int row) {
+            accessor.setByte(instance, values[row]);
+        }
+
+        @Override
+        Object boxedValue(int row) {
+            return values[row];
+        }
+    }
+
+    /**
+     * 每一行只占一个bit
+     */
+    private static class BooleanColumn extends NullableColumn {
+        private final BitSet values;
+
+        BooleanColumn(FieldAccessor accessor, int size) {
+            super(accessor);
+            this.values = new BitSet(size);
+        }
+
+        @Override
+        void readValue(Object value, int row) {
+            values.set(row, (boolean) value);
+        }
+
+        @Override
+        void injectPrimitive(Object instance, int row) {
+            accessor.setBoolean(instance, values.get(row));
+        }
+
+        @Override
+        Object boxedValue(int row) {
+            return values.get(row);
+        }
+    }
+
+    /**
+     * 字典编码的字符串列，重复的字符串只保存一份，每一行只保存字典中的下标，-1表示null
+     */
+    private static class StringColumn extends Column {
+        private final int[] codes;
+        private String[] dictionary;
+        private List<String> dictionaryList = new ArrayList<>();
+        private Map<String, Integer> codeMap = new HashMap<>();
+
+        StringColumn(FieldAccessor accessor, int size) {
+            super(accessor);
+            this.codes = new int[size];
+        }
+
+        @Override
+        void read(Object instance, int row) {
+            var value = (String) accessor.get(instance);
+            if (value == null) {
+                codes[row] = -1;
+                return;
+            }
+            codes[row] = codeMap.computeIfAbsent(value, it -> {
+                dictionaryList.add(it);
+                return dictionaryList.size() - 1;
+            });
+        }
+
+        @Override
+        void inject(Object instance, int row) {
+            var code = codes[row];
+            accessor.set(instance, code < 0 ? null : dictionary[code]);
+        }
+
+        @Override
+        void finish() {
+            dictionary = dictionaryList.toArray(new String[0]);
+            dictionaryList = null;
+            codeMap = null;
+        }
+    }
+
+    private static class ObjectColumn extends Column {
+        private final Object[] values;
+
+        ObjectColumn(FieldAccessor accessor, int size) {
+            super(accessor);
+            this.values = new Object[size];
+        }
+
+        @Override
+        void read(Object instance, int row) {
+            values[row] = accessor.get(instance);
+        }
+
+        @Override
+        void inject(Object instance, int row) {
+            accessor.set(instance, values[row]);
+        }
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.collection;
+
+import java.util.*;
+
+/**
+ * 冻结后的非唯一索引，使用CSR（Compressed Sparse Row）格式保存
+ * <p>
+ * 所有的行按索引值分组后放在同一个数组中，第i个索引值的行为rows[offsets[i], offsets[i + 1])，数组的大小都是精确的，没有ArrayList多余的容量；
+ * get返回的是这段数组的只读视图，不会复制，调用方也无法修改，不需要防御性的复制
+ * <p>
+ * 索引值可以为null，遍历顺序为索引值第一次出现的顺序，每个索引值的行保持加载的顺序
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class CsrIndexMap<V> extends AbstractMap<Object, List<V>> {
+
+    // 哈希表中保存的是索引值的下标+1，0表示空
+    private final int[] table;
+    private final Object[] keys;
+    private final int[] offsets;
+    private final Object[] rows;
+
+    private CsrIndexMap(int[] table, Object[] keys, int[] offsets, Object[] rows) {
+        this.table = table;
+        this.keys = keys;
+        this.offsets = offsets;
+        this.rows = rows;
+    }
+
+    public static <V> CsrIndexMap<V> valueOf(Map<Object, ? extends List<V>> indexMap) {
+        var keys = new Object[indexMap.size()];
+        var offsets = new int[indexMap.size() + 1];
+        var rowSize = 0;
+        var index = 0;
+        for (var entry : indexMap.entrySet()) {
+            keys[index] = entry.getKey();
+            rowSize += entry.getValue().size();
+            offsets[++index] = rowSize;
+        }
+
+        var rows = new Object[rowSize];
+        index = 0;
+        for (var list : indexMap.values()) {
+            for (var value : list) {
+                rows[index++] = value;
+            }
+        }
+
+        var table = new int[OpenHashing.tableSize(keys.length)];
+        var mask = table.length - 1;
+        for (var i = 0; i < keys.length; i++) {
+            var slot = OpenHashing.mix(Objects.hashCode(keys[i])) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+        return new CsrIndexMap<>(table, keys, offsets, rows);
+    }
+
+    private int indexOf(Object key) {
+        var mask = table.length - 1;
+        var slot = OpenHashing.mix(Objects.hashCode(key)) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            if (Objects.equals(keys[entry - 1], key)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    @Override
+    public List<V> get(Object key) {
+        var index = indexOf(key);
+        return index < 0 ? null : new Slice(offsets[index], offsets[index + 1]);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public Set<Entry<Object, List<V>>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Object, List<V>>> iterator() {
+                return new OpenHashing.EntryIterator<>(keys.length) {
+                    @Override
+                    protected Entry<Object, List<V>> entry(int index) {
+                        return new SimpleImmutableEntry<>(keys[index], new Slice(offsets[index], offsets[index + 1]));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+
+    /**
+     * rows[from, to)的只读视图
+     */
+    private class Slice extends AbstractList<V> implements RandomAccess {
+        private final int from;
+        private final int to;
+
+        Slice(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V get(int index) {
+            Objects.checkIndex(index, to - from);
+            return (V) rows[from + index];
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.collection;
+
+import java.util.*;
+
+/**
+ * 连续的int主键直接使用数组保存，下标为id减去最小的id，get就是一次数组访问
+ * <p>
+ * 只读，和IntObjectMap一样按插入的顺序遍历，所有的主键Map的遍历顺序都是配置表中行的顺序
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class DenseArrayMap<V> extends AbstractMap<Integer, V> {
+
+    // 超过这个长度的数组不使用
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final int minId;
+    private final Object[] values;
+    // 按插入顺序保存的id，只在遍历的时候使用
+    private final int[] ids;
+
+    private DenseArrayMap(int minId, Object[] values, int[] ids) {
+        this.minId = minId;
+        this.values = values;
+        this.ids = ids;
+    }
+
+    /**
+     * id的填充率（id的数量 / (最大id - 最小id + 1)）不小于fillFactor的时候转换为数组，否则返回null
+     */
+    public static <V> DenseArrayMap<V> valueOf(IntObjectMap<V> map, float fillFactor) {
+        if (map.isEmpty() || fillFactor <= 0 || fillFactor > 1) {
+            return null;
+        }
+        var minId = Integer.MAX_VALUE;
+        var maxId = Integer.MIN_VALUE;
+        for (var id : map.keySet()) {
+            minId = Math.min(minId, id);
+            maxId = Math.max(maxId, id);
+        }
+        var length = (long) maxId - minId + 1;
+        if (length > MAX_ARRAY_SIZE || map.size() < length * fillFactor) {
+            return null;
+        }
+
+        var values = new Object[(int) length];
+        var ids = new int[map.size()];
+        var index = 0;
+        for (var entry : map.entrySet()) {
+            values[entry.getKey() - minId] = entry.getValue();
+            ids[index++] = entry.getKey();
+        }
+        return new DenseArrayMap<>(minId, values, ids);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int id) {
+        // 转换为long计算，避免id很小的时候溢出
+        var index = (long) id - minId;
+        return index < 0 || index >= values.length ? null : (V) values[(int) index];
+    }
+
+    public V get(long id) {
+        return id < Integer.MIN_VALUE || id > Integer.MAX_VALUE ? null : get((int) id);
+    }
+
+    public boolean containsKey(int id) {
+        return get(id) != null;
+    }
+
+    @Override
+    public V get(Object key) {
+        return key instanceof Integer ? get(((Integer) key).intValue()) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    @Override
+    public Set<Entry<Integer, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Integer, V>> iterator() {
+                return new OpenHashing.EntryIterator<>(ids.length) {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    protected Entry<Integer, V> entry(int index) {
+                        var id = ids[index];
+                        return new SimpleImmutableEntry<>(id, (V) values[id - minId]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return ids.length;
+            }
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new OpenHashing.EntryIterator<>(ids.length) {
+                    @Override
+                    protected V entry(int index) {
+                        return (V) values[ids[index] - minId];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return ids.length;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.collection;
+
+import java.util.Objects;
+
+/**
+ * 按行号保存的key列，以及key到行号的开放寻址哈希表
+ * <p>
+ * 哈希表中只保存行号+1，比较的时候直接读取key列，int和long的key保存为基本类型数组，查找的时候不装箱
+ *
+ * @author godotg
+ * @version 4.0
+ */
+abstract class KeyColumn {
+
+    // 0表示空槽，其它为行号+1
+    private final int[] table;
+
+    KeyColumn(int size) {
+        this.table = new int[OpenHashing.tableSize(size)];
+    }
+
+    /**
+     * int和long（包括包装类型）的key使用基本类型数组，其它类型的key可以为null
+     */
+    static KeyColumn valueOf(Class<?> type, int size) {
+        if (type == int.class || type == Integer.class) {
+            return new IntKeyColumn(size);
+        } else if (type == long.class || type == Long.class) {
+            return new LongKeyColumn(size);
+        }
+        return new ObjectKeyColumn(size);
+    }
+
+    abstract int size();
+
+    abstract void set(int row, Object key);
+
+    abstract Object get(int row);
+
+    abstract int hash(int row);
+
+    abstract boolean equals(int row, int otherRow);
+
+    /**
+     * 把第row行的key加入哈希表，key已经存在的时候不加入，返回已经存在的行号；加入成功返回-1
+     */
+    int insert(int row) {
+        var mask = table.length - 1;
+        var slot = hash(row) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            if (equals(entry - 1, row)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = row + 1;
+        return -1;
+    }
+
+    /**
+     * @return key所在的行号，不存在返回-1
+     */
+    abstract int rowOf(Object key);
+
+    int rowOf(int key) {
+        return rowOf((Object) key);
+    }
+
+    int rowOf(long key) {
+        return rowOf((Object) key);
+    }
+
+    int[] table() {
+        return table;
+    }
+
+    static final class IntKeyColumn extends KeyColumn {
+        private final int[] keys;
+
+        IntKeyColumn(int size) {
+            super(size);
+            this.keys = new int[size];
+        }
+
+        @Override
+        int size() {
+            return keys.length;
+        }
+
+        @Override
+        void set(int row, Object key) {
+            keys[row] = (Integer) key;
+        }
+
+        @Override
+        Object get(int row) {
+            return keys[row];
+        }
+
+        @Override
+        int hash(int row) {
+            return OpenHashing.mix(keys[row]);
+        }
+
+        @Override
+        boolean equals(int row, int otherRow) {
+            return keys[row] == keys[otherRow];
+        }
+
+        @Override
+        int rowOf(Object key) {
+            return key instanceof Integer ? rowOf((int) (Integer) key) : -1;
+        }
+
+        @Override
+        int rowOf(int key) {
+            var table = table();
+            var mask = table.length - 1;
+            var slot = OpenHashing.mix(key) & mask;
+            int entry;
+            while ((entry = table[slot]) != 0) {
+                if (keys[entry - 1] == key) {
+                    return entry - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        @Override
+        int rowOf(long key) {
+            return key == (int) key ? rowOf((int) key) : -1;
+        }
+    }
+
+    static final class LongKeyColumn extends KeyColumn {
+        private final long[] keys;
+
+        LongKeyColumn(int size) {
+            super(size);
+            this.keys = new long[size];
+        }
+
+        @Override
+        int size() {
+            return keys.length;
+        }
+
+        @Override
+        void set(int row, Object key) {
+            keys[row] = (Long) key;
+        }
+
+        @Override
+        Object get(int row) {
+            return keys[row];
+        }
+
+        @Override
+        int hash(int row) {
+            return OpenHashing.mix(keys[row]);
+        }
+
+        @Override
+        boolean equals(int row, int otherRow) {
+            return keys[row] == keys[otherRow];
+        }
+
+        @Override
+        int rowOf(Object key) {
+            return key instanceof Long ? rowOf((long) (Long) key) : -1;
+        }
+
+        @Override
+        int rowOf(int key) {
+            return rowOf((long) key);
+        }
+
+        @Override
+        int rowOf(long key) {
+            var table = table();
+            var mask = table.length - 1;
+            var slot = OpenHashing.mix(key) & mask;
+            int entry;
+            while ((entry = table[slot]) != 0) {
+                if (keys[entry - 1] == key) {
+                    return entry - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+    }
+
+    static final class ObjectKeyColumn extends KeyColumn {
+        private final Object[] keys;
+
+        ObjectKeyColumn(int size) {
+            super(size);
+            this.keys = new Object[size];
+        }
+
+        @Override
+        int size() {
+            return keys.length;
+        }
+
+        @Override
+        void set(int row, Object key) {
+            keys[row] = key;
+        }
+
+        @Override
+        Object get(int row) {
+            return keys[row];
+        }
+
+        @Override
+        int hash(int row) {
+            return OpenHashing.mix(Objects.hashCode(keys[row]));
+        }
+
+        @Override
+        boolean equals(int row, int otherRow) {
+            return Objects.equals(keys[row], keys[otherRow]);
+        }
+
+        @Override
+        int rowOf(Object key) {
+            var table = table();
+            var mask = table.length - 1;
+            var slot = OpenHashing.mix(Objects.hashCode(key)) & mask;
+            int entry;
+            while ((entry = table[slot]) != 0) {
+                if (Objects.equals(keys[entry - 1], key)) {
+                    return entry - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+    }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.collection;
+
+import java.util.*;
+
+/**
+ * long作为key的开放寻址Map，get(long)不会装箱，也没有HashMap的Node对象
+ * <p>
+ * key和value按插入顺序紧凑的保存在数组中，哈希表中只保存数组的下标，所以遍历顺序就是插入顺序；不支持删除，value不能为null
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class LongObjectMap<V> extends AbstractMap<Long, V> {
+
+    // 哈希表中保存的是entry的下标+1，0表示空
+    private int[] table;
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    public LongObjectMap() {
+        this(OpenHashing.DEFAULT_CAPACITY);
+    }
+
+    public LongObjectMap(int expectedSize) {
+        table = new int[OpenHashing.tableSize(expectedSize)];
+        keys = new long[Math.max(expectedSize, 1)];
+        values = new Object[keys.length];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        var mask = table.length - 1;
+        var slot = OpenHashing.mix(key) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            if (keys[entry - 1] == key) {
+                return (V) values[entry - 1];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        Objects.requireNonNull(value);
+        var mask = table.length - 1;
+        var slot = OpenHashing.mix(key) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            if (keys[entry - 1] == key) {
+                var previous = (V) values[entry - 1];
+                values[entry - 1] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (size == keys.length) {
+            var capacity = OpenHashing.grow(size);
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        keys[size] = key;
+        values[size] = value;
+        table[slot] = ++size;
+        if (OpenHashing.needRehash(size, table.length)) {
+            rehash();
+        }
+        return null;
+    }
+
+    private void rehash() {
+        table = new int[table.length << 1];
+        var mask = table.length - 1;
+        for (var i = 0; i < size; i++) {
+            var slot = OpenHashing.mix(keys[i]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+    }
+
+    @Override
+    public V get(Object key) {
+        return key instanceof Long ? get(((Long) key).longValue()) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public V put(Long key, V value) {
+        return put(key.longValue(), value);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 加载完成后释放数组扩容时多出来的容量，之后继续put会重新扩容
+     */
+    public void trimToSize() {
+        if (size == keys.length) {
+            return;
+        }
+        keys = Arrays.copyOf(keys, size);
+        values = Arrays.copyOf(values, size);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(table, 0);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+    }
+
+    @Override
+    public Set<Entry<Long, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Long, V>> iterator() {
+                return new OpenHashing.EntryIterator<>(size) {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    protected Entry<Long, V> entry(int index) {
+                        return new SimpleImmutableEntry<>(keys[index], (V) values[index]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new OpenHashing.EntryIterator<>(size) {
+                    @Override
+                    protected V entry(int index) {
+                        return (V) values[index];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+}
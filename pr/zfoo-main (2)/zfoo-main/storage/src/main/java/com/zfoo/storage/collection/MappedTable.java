@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.collection;
+
+import com.zfoo.protocol.exception.RunException;
+import com.zfoo.storage.interpreter.BinaryFormat;
+import com.zfoo.storage.interpreter.BinaryFormat.BinaryField;
+import com.zfoo.storage.interpreter.BinaryReader;
+import com.zfoo.storage.model.vo.IndexDef;
+import com.zfoo.storage.util.ResourceAccessor;
+import com.zfoo.storage.util.StringPool;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * 使用内存映射读取二进制快照，堆上只保存主键和索引到行号的映射，行对象在get的时候才从映射的文件中解码
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class MappedTable<K, V> extends RowTable<K, V> {
+
+    // 每一段映射的最大字节数，一行数据不会跨越两段
+    private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    private final ResourceAccessor<V> accessor;
+    private final BinaryField[] fields;
+
+    // 每一行在行数据中的偏移
+    private final long[] offsets;
+    private final long[] segmentStarts;
+    private final MappedByteBuffer[] segments;
+
+    private MappedTable(Class<V> clazz, BinaryField[] fields, long[] offsets, long[] segmentStarts, MappedByteBuffer[] segments, KeyColumn ids, int cacheSize) {
+        super(clazz, ids, cacheSize);
+        this.accessor = ResourceAccessor.valueOf(clazz);
+        this.fields = fields;
+        this.offsets = offsets;
+        this.segmentStarts = segmentStarts;
+        this.segments = segments;
+    }
+
+    public static <K, V> MappedTable<K, V> open(File file, Class<V> clazz, Map<String, IndexDef> indexDefMap, int cacheSize) {
+        try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            var counter = new CountingInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            var input = new DataInputStream(counter);
+            var header = BinaryReader.readHeader(input, clazz);
+            var rowStart = counter.count;
+            var rowCount = header.rowCount;
+
+            // 主键区在行数据之后
+            channel.position(rowStart + header.rowSize);
+            input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            var idField = header.fields[header.idField];
+            var ids = KeyColumn.valueOf(idField.field.getType(), rowCount);
+            var offsets = new long[rowCount];
+            for (var row = 0; row < rowCount; row++) {
+                ids.set(row, idField.readValue(input, StringPool.NONE));
+                offsets[row] = input.readLong();
+            }
+
+            // 分段映射行数据
+            var segmentStarts = new ArrayList<Long>();
+            var segments = new ArrayList<MappedByteBuffer>();
+            var segmentStart = 0L;
+            for (var row = 0; row <= rowCount; row++) {
+                var rowEnd = row + 1 < rowCount ? offsets[row + 1] : header.rowSize;
+                if (row == rowCount || rowEnd - segmentStart > MAX_SEGMENT_SIZE) {
+                    var segmentEnd = row == rowCount ? header.rowSize : offsets[row];
+                    if (segmentEnd > segmentStart || segments.isEmpty()) {
+                        segmentStarts.add(segmentStart);
+                        segments.add(channel.map(FileChannel.MapMode.READ_ONLY, rowStart + segmentStart, segmentEnd - segmentStart));
+                    }
+                    segmentStart = segmentEnd;
+                }
+            }
+
+            var table = new MappedTable<K, V>(clazz, header.fields, offsets, segmentStarts.stream().mapToLong(it -> it).toArray(), segments.toArray(new MappedByteBuffer[0]), ids, cacheSize);
+
+            // 索引区在主键区之后
+            var indexSize = input.readShort();
+            var indexNames = new HashSet<String>();
+            for (var i = 0; i < indexSize; i++) {
+                var name = BinaryFormat.readString(input);
+                var unique = input.readBoolean();
+                var tag = input.readByte();
+                var indexDef = indexDefMap.get(name);
+                var keyField = new BinaryField(name, tag, null, indexDef == null ? null : indexDef.getField());
+                if (indexDef == null) {
+                    for (var row = 0; row < rowCount; row++) {
+                        keyField.skip(input);
+                    }
+                    continue;
+                }
+                if (unique != indexDef.isUnique() || tag != BinaryFormat.tagOf(indexDef.getField().getType())) {
+                    throw new RunException("资源类[class:{}]的索引[index:{}]和二进制快照中的不一致，请重新导出快照", clazz.getSimpleName(), name);
+                }
+                table.readIndex(input, keyField, unique, rowCount);
+                indexNames.add(name);
+            }
+            if (!indexNames.containsAll(indexDefMap.keySet())) {
+                throw new RunException("资源类[class:{}]的索引在二进制快照中不存在，请重新导出快照", clazz.getSimpleName());
+            }
+            return table;
+        } catch (IOException e) {
+            throw new RunException(e, "静态资源[{}]异常，无法映射二进制快照[{}]", clazz.getSimpleName(), file.getAbsolutePath());
+        }
+    }
+
+    private void readIndex(DataInput input, BinaryField keyField, boolean unique, int rowCount) throws IOException {
+        var keys = new Object[rowCount];
+        for (var row = 0; row < rowCount; row++) {
+            keys[row] = keyField.readValue(input, StringPool.NONE);
+        }
+        addIndex(keyField.name, unique, keys);
+    }
+
+    /**
+     * 从映射的文件中解码第row行
+     */
+    @Override
+    protected V decode(int row) {
+        var offset = offsets[row];
+        var segment = Arrays.binarySearch(segmentStarts, offset);
+        if (segment < 0) {
+            segment = -segment - 2;
+        }
+        var buffer = segments[segment].duplicate();
+        buffer.position((int) (offset - segmentStarts[segment]));
+        try {
+            return BinaryReader.readRow(new DataInputStream(new ByteBufferInputStream(buffer)), fields, accessor, StringPool.NONE);
+        } catch (IOException e) {
+            throw new RunException(e, "静态资源[{}]异常，无法解码第[{}]行", clazz.getSimpleName(), row);
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            var result = super.read();
+            if (result >= 0) {
+                count++;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            var result = super.read(bytes, offset, length);
+            if (result > 0) {
+                count += result;
+            }
+            return result;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            var result = super.skip(n);
+            count += result;
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.collection;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 开放寻址Map共用的哈希函数和容量计算
+ *
+ * @author godotg
+ * @version 4.0
+ */
+abstract class OpenHashing {
+
+    static final int DEFAULT_CAPACITY = 16;
+
+    private static final int MAX_TABLE_SIZE = 1 << 30;
+
+    private static final int GOLDEN_RATIO = 0x9E3779B9;
+
+    /**
+     * 连续的id直接取低位会聚集在一起，乘以黄金分割数打散
+     */
+    static int mix(int hash) {
+        var h = hash * GOLDEN_RATIO;
+        return h ^ (h >>> 16);
+    }
+
+    static int mix(long hash) {
+        return mix((int) (hash ^ (hash >>> 32)));
+    }
+
+    /**
+     * 负载因子为0.5，线性探测的平均探测次数很少
+     */
+    static int tableSize(int expectedSize) {
+        var size = Integer.highestOneBit(Math.max(expectedSize, 1) * 2 - 1) << 1;
+        return Math.min(Math.max(size, DEFAULT_CAPACITY), MAX_TABLE_SIZE);
+    }
+
+    static boolean needRehash(int size, int tableSize) {
+        return size * 2 > tableSize && tableSize < MAX_TABLE_SIZE;
+    }
+
+    static int grow(int size) {
+        return Math.max(size + (size >> 1), DEFAULT_CAPACITY);
+    }
+
+    /**
+     * 按插入顺序遍历紧凑数组中的entry
+     */
+    abstract static class EntryIterator<E> implements Iterator<E> {
+        private final int size;
+        private int index;
+
+        EntryIterator(int size) {
+            this.size = size;
+        }
+
+        protected abstract E entry(int index);
+
+        @Override
+        public boolean hasNext() {
+            return index < size;
+        }
+
+        @Override
+        public E next() {
+            if (index >= size) {
+                throw new NoSuchElementException();
+            }
+            return entry(index++);
+        }
+    }
+
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.collection;
+
+import java.util.*;
+
+/**
+ * 只读的最小完美哈希Map，使用hash and displace算法（CHD）在已知的key集合上构建，n个key正好放在n个槽中
+ * <p>
+ * key先哈希到一个桶，每个桶保存一个位移种子，get的时候一次哈希找到桶，再用桶的种子哈希一次得到槽位，没有冲突链和探测；
+ * 每4个key一个桶，哈希函数本身每个key只需要8位左右
+ * <p>
+ * 和IntObjectMap一样，key和value按插入顺序紧凑的保存，槽中保存entry的下标，所以遍历顺序就是插入顺序；比较key用于判断不存在的key
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class PerfectHashMap<K, V> extends AbstractMap<K, V> {
+
+    // 平均每个桶的key数量
+    private static final int BUCKET_SIZE = 4;
+
+    // 每个桶最多尝试的种子数量，超过则构建失败
+    private static final int MAX_SEED = 1 << 20;
+
+    // 每个桶的种子，0表示空桶，负数表示只有一个key的桶直接指向的槽位-(slot+1)
+    private final int[] seeds;
+    // 槽位对应的entry的下标
+    private final int[] table;
+    private final Object[] keys;
+    private final Object[] values;
+
+    private PerfectHashMap(int[] seeds, int[] table, Object[] keys, Object[] values) {
+        this.seeds = seeds;
+        this.table = table;
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * 在map当前的key集合上构建，map中有null的key或者value，或者有无法区分的hashCode的时候构建失败，返回null
+     */
+    public static <K, V> PerfectHashMap<K, V> valueOf(Map<K, V> map) {
+        var size = map.size();
+        if (size == 0) {
+            return null;
+        }
+
+        var keys = new Object[size];
+        var values = new Object[size];
+        var hashes = new int[size];
+        var index = 0;
+        for (var entry : map.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                return null;
+            }
+            keys[index] = entry.getKey();
+            values[index] = entry.getValue();
+            hashes[index] = entry.getKey().hashCode();
+            index++;
+        }
+
+        // 把key分到桶中，从大的桶开始放置，大的桶越早放越容易找到种子
+        var bucketCount = (size + BUCKET_SIZE - 1) / BUCKET_SIZE;
+        var bucketKeys = new ArrayList<List<Integer>>(bucketCount);
+        for (var i = 0; i < bucketCount; i++) {
+            bucketKeys.add(new ArrayList<>(BUCKET_SIZE));
+        }
+        for (var i = 0; i < size; i++) {
+            bucketKeys.get(reduce(hash(hashes[i], 0), bucketCount)).add(i);
+        }
+        var buckets = new Integer[bucketCount];
+        for (var i = 0; i < bucketCount; i++) {
+            buckets[i] = i;
+        }
+        Arrays.sort(buckets, (a, b) -> Integer.compare(bucketKeys.get(b).size(), bucketKeys.get(a).size()));
+
+        var seeds = new int[bucketCount];
+        var table = new int[size];
+        var occupied = new boolean[size];
+        var slots = new int[BUCKET_SIZE * 4];
+        // 空闲槽位的游标，只有一个key的桶直接放到空闲槽位，最后几个桶不需要在几乎占满的表中找种子
+        var freeSlot = 0;
+        for (var bucket : buckets) {
+            var members = bucketKeys.get(bucket);
+            if (members.isEmpty()) {
+                break;
+            }
+            if (members.size() == 1) {
+                while (occupied[freeSlot]) {
+                    freeSlot++;
+                }
+                occupied[freeSlot] = true;
+                table[freeSlot] = members.get(0);
+                seeds[bucket] = -(freeSlot + 1);
+                continue;
+            }
+            if (slots.length < members.size()) {
+                slots = new int[members.size()];
+            }
+
+            var found = false;
+            for (var seed = 1; seed < MAX_SEED && !found; seed++) {
+                found = true;
+                for (var i = 0; i < members.size(); i++) {
+                    var slot = reduce(hash(hashes[members.get(i)], seed), size);
+                    if (occupied[slot] || contains(slots, i, slot)) {
+                        found = false;
+                        break;
+                    }
+                    slots[i] = slot;
+                }
+                if (found) {
+                    seeds[bucket] = seed;
+                }
+            }
+            if (!found) {
+                return null;
+            }
+
+            for (var i = 0; i < members.size(); i++) {
+                occupied[slots[i]] = true;
+                table[slots[i]] = members.get(i);
+            }
+        }
+        return new PerfectHashMap<>(seeds, table, keys, values);
+    }
+
+    private static boolean contains(int[] slots, int length, int slot) {
+        for (var i = 0; i < length; i++) {
+            if (slots[i] == slot) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * murmur3的fmix32，seed不同的时候得到的是不同的哈希函数
+     */
+    private static int hash(int hashCode, int seed) {
+        var h = hashCode ^ (seed * 0x9E3779B9);
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * 把32位的哈希值均匀的映射到[0, n)，不需要取模
+     */
+    private static int reduce(int hash, int n) {
+        return (int) (((hash & 0xFFFFFFFFL) * n) >>> 32);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        var hashCode = key.hashCode();
+        var seed = seeds[reduce(hash(hashCode, 0), seeds.length)];
+        if (seed == 0) {
+            return null;
+        }
+        var slot = seed < 0 ? -seed - 1 : reduce(hash(hashCode, seed), table.length);
+        var index = table[slot];
+        return key.equals(keys[index]) ? (V) values[index] : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new OpenHashing.EntryIterator<>(keys.length) {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    protected Entry<K, V> entry(int index) {
+                        return new SimpleImmutableEntry<>((K) keys[index], (V) values[index]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new OpenHashing.EntryIterator<>(values.length) {
+                    @Override
+                    protected V entry(int index) {
+                        return (V) values[index];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return values.length;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.collection;
+
+import com.zfoo.protocol.exception.RunException;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+/**
+ * 不在堆上保存行对象的配置表，主键和索引只保存行号，行对象在访问的时候才由子类生成
+ * <p>
+ * 每次生成都是新的对象，可以设置一个缓存保存最近访问的行；dataMap，indexMap，uniqueIndexMap都是只读的视图，遍历的时候才生成行对象
+ * <p>
+ * 缓存是按行号直接映射的数组，读取不加锁，两行映射到同一个位置的时候后访问的替换先访问的，是近似的LRU
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public abstract class RowTable<K, V> {
+
+    protected final Class<V> clazz;
+
+    // 第row行的主键，int和long的主键保存为基本类型数组
+    private final KeyColumn ids;
+    private final Map<String, Map<Object, List<V>>> indexMap = new HashMap<>();
+    private final Map<String, Map<Object, V>> uniqueIndexMap = new HashMap<>();
+
+    // 缓存的位置为行号 & (cache.length() - 1)，为null表示没有缓存
+    private final AtomicReferenceArray<CacheEntry<V>> cache;
+
+    /**
+     * @param ids 每一行的主键，构造的时候建立主键到行号的哈希表
+     */
+    protected RowTable(Class<V> clazz, KeyColumn ids, int cacheSize) {
+        this.clazz = clazz;
+        this.ids = ids;
+        for (var row = 0; row < ids.size(); row++) {
+            if (ids.insert(row) >= 0) {
+                throw new RunException("静态资源[resource:{}]的[id:{}]重复", clazz.getSimpleName(), ids.get(row));
+            }
+        }
+        this.cache = cacheSize > 0 ? new AtomicReferenceArray<>(Integer.highestOneBit(Math.min(cacheSize, 1 << 29) * 2 - 1)) : null;
+    }
+
+    /**
+     * 生成第row行的对象
+     */
+    protected abstract V decode(int row);
+
+    public V row(int row) {
+        if (cache == null) {
+            return decode(row);
+        }
+        var slot = row & (cache.length() - 1);
+        var entry = cache.get(slot);
+        if (entry != null && entry.row == row) {
+            return entry.value;
+        }
+        // 多个线程同时解码同一行的时候可能生成多个对象，和没有缓存的时候一样都是只读的副本
+        var value = decode(row);
+        cache.lazySet(slot, new CacheEntry<>(row, value));
+        return value;
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * 建立索引，唯一索引为索引值到行号的哈希表；非唯一索引按索引值分组，每一组的行号连续的保存在同一个int数组中
+     *
+     * @param keys 每一行的索引值，下标为行号
+     */
+    protected void addIndex(String name, boolean unique, Object[] keys) {
+        if (unique) {
+            var rows = new KeyColumn.ObjectKeyColumn(keys.length);
+            for (var row = 0; row < keys.length; row++) {
+                rows.set(row, keys[row]);
+                if (rows.insert(row) >= 0) {
+                    throw new RunException("静态资源[class:{}]的唯一索引重复[index:{}][value:{}]", clazz.getName(), name, keys[row]);
+                }
+            }
+            uniqueIndexMap.put(name, new UniqueIndexMap(rows));
+            return;
+        }
+
+        // 先找到每一行所在的组，组的顺序为索引值第一次出现的顺序
+        var groupKeys = new KeyColumn.ObjectKeyColumn(keys.length);
+        var groupFirstRows = new int[keys.length];
+        var rowGroups = new int[keys.length];
+        var groupSize = 0;
+        for (var row = 0; row < keys.length; row++) {
+            groupKeys.set(groupSize, keys[row]);
+            var group = groupKeys.insert(groupSize);
+            if (group < 0) {
+                group = groupSize++;
+                groupFirstRows[group] = row;
+            }
+            rowGroups[row] = group;
+        }
+
+        var groups = new KeyColumn.ObjectKeyColumn(groupSize);
+        var offsets = new int[groupSize + 1];
+        for (var group = 0; group < groupSize; group++) {
+            groups.set(group, keys[groupFirstRows[group]]);
+            groups.insert(group);
+        }
+        for (var row = 0; row < keys.length; row++) {
+            offsets[rowGroups[row] + 1]++;
+        }
+        for (var group = 0; group < groupSize; group++) {
+            offsets[group + 1] += offsets[group];
+        }
+        var rows = new int[keys.length];
+        var positions = Arrays.copyOf(offsets, groupSize);
+        for (var row = 0; row < keys.length; row++) {
+            rows[positions[rowGroups[row]]++] = row;
+        }
+        indexMap.put(name, new IndexMap(groups, offsets, rows));
+    }
+
+    public Map<K, V> dataMap() {
+        return new DataMap();
+    }
+
+    public Map<String, Map<Object, List<V>>> indexMap() {
+        return indexMap;
+    }
+
+    public Map<String, Map<Object, V>> uniqueIndexMap() {
+        return uniqueIndexMap;
+    }
+
+    private class DataMap extends AbstractMap<K, V> {
+        @Override
+        public V get(Object key) {
+            var row = ids.rowOf(key);
+            return row < 0 ? null : row(row);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return ids.rowOf(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return ids.size();
+        }
+
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Iterator<Entry<K, V>> iterator() {
+                    return new OpenHashing.EntryIterator<>(ids.size()) {
+                        @Override
+                        protected Entry<K, V> entry(int index) {
+                            return new SimpleImmutableEntry<>((K) ids.get(index), row(index));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return ids.size();
+                }
+            };
+        }
+    }
+
+    private class UniqueIndexMap extends AbstractMap<Object, V> {
+        private final KeyColumn rows;
+
+        UniqueIndexMap(KeyColumn rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public V get(Object key) {
+            var row = rows.rowOf(key);
+            return row < 0 ? null : row(row);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return rows.rowOf(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return rows.size();
+        }
+
+        @Override
+        public Set<Entry<Object, V>> entrySet() {
+            return new RowEntrySet<>(rows.size(), it -> new SimpleImmutableEntry<>(rows.get(it), row(it)));
+        }
+    }
+
+    /**
+     * 第group组的索引值为groups.get(group)，行号为rows[offsets[group], offsets[group + 1])
+     */
+    private class IndexMap extends AbstractMap<Object, List<V>> {
+        private final KeyColumn groups;
+        private final int[] offsets;
+        private final int[] rows;
+
+        IndexMap(KeyColumn groups, int[] offsets, int[] rows) {
+            this.groups = groups;
+            this.offsets = offsets;
+            this.rows = rows;
+        }
+
+        @Override
+        public List<V> get(Object key) {
+            var group = groups.rowOf(key);
+            return group < 0 ? null : new RowList(rows, offsets[group], offsets[group + 1]);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return groups.rowOf(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return groups.size();
+        }
+
+        @Override
+        public Set<Entry<Object, List<V>>> entrySet() {
+            return new RowEntrySet<>(groups.size(), it -> new SimpleImmutableEntry<>(groups.get(it), new RowList(rows, offsets[it], offsets[it + 1])));
+        }
+    }
+
+    /**
+     * 遍历到的时候才生成行对象的只读entry集合
+     */
+    private static class RowEntrySet<T> extends AbstractSet<Map.Entry<Object, T>> {
+        private final int size;
+        private final IntFunction<Map.Entry<Object, T>> entries;
+
+        RowEntrySet(int size, IntFunction<Map.Entry<Object, T>> entries) {
+            this.size = size;
+            this.entries = entries;
+        }
+
+        @Override
+        public Iterator<Map.Entry<Object, T>> iterator() {
+            return new OpenHashing.EntryIterator<>(size) {
+                @Override
+                protected Map.Entry<Object, T> entry(int index) {
+                    return entries.apply(index);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private static class CacheEntry<V> {
+        private final int row;
+        private final V value;
+
+        CacheEntry(int row, V value) {
+            this.row = row;
+            this.value = value;
+        }
+    }
+
+    /**
+     * 按需生成行对象的只读List，rows[from, to)为这个List的行号
+     */
+    private class RowList extends AbstractList<V> implements RandomAccess {
+        private final int[] rows;
+        private final int from;
+        private final int to;
+
+        RowList(int[] rows, int from, int to) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public V get(int index) {
+            Objects.checkIndex(index, to - from);
+            return row(rows[from + index]);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.collection;
+
+import java.util.*;
+
+/**
+ * String作为key的开放寻址Map，保存了每个key的hash，探测的时候先比较hash再比较字符串，没有HashMap的Node对象
+ * <p>
+ * key和value按插入顺序紧凑的保存在数组中，哈希表中只保存数组的下标，所以遍历顺序就是插入顺序；不支持删除，value不能为null
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class StringObjectMap<V> extends AbstractMap<String, V> {
+
+    // 哈希表中保存的是entry的下标+1，0表示空
+    private int[] table;
+    private String[] keys;
+    private int[] hashes;
+    private Object[] values;
+    private int size;
+
+    public StringObjectMap() {
+        this(OpenHashing.DEFAULT_CAPACITY);
+    }
+
+    public StringObjectMap(int expectedSize) {
+        table = new int[OpenHashing.tableSize(expectedSize)];
+        keys = new String[Math.max(expectedSize, 1)];
+        hashes = new int[keys.length];
+        values = new Object[keys.length];
+    }
+
+    @SuppressWarnings("unchecked")
+    private V find(String key) {
+        var hash = OpenHashing.mix(key.hashCode());
+        var mask = table.length - 1;
+        var slot = hash & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            if (hashes[entry - 1] == hash && key.equals(keys[entry - 1])) {
+                return (V) values[entry - 1];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(String key, V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        var hash = OpenHashing.mix(key.hashCode());
+        var mask = table.length - 1;
+        var slot = hash & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            if (hashes[entry - 1] == hash && key.equals(keys[entry - 1])) {
+                var previous = (V) values[entry - 1];
+                values[entry - 1] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (size == keys.length) {
+            var capacity = OpenHashing.grow(size);
+            keys = Arrays.copyOf(keys, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        keys[size] = key;
+        hashes[size] = hash;
+        values[size] = value;
+        table[slot] = ++size;
+        if (OpenHashing.needRehash(size, table.length)) {
+            rehash();
+        }
+        return null;
+    }
+
+    private void rehash() {
+        table = new int[table.length << 1];
+        var mask = table.length - 1;
+        for (var i = 0; i < size; i++) {
+            var slot = hashes[i] & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+    }
+
+    @Override
+    public V get(Object key) {
+        return key instanceof String ? find((String) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 加载完成后释放数组扩容时多出来的容量，之后继续put会重新扩容
+     */
+    public void trimToSize() {
+        if (size == keys.length) {
+            return;
+        }
+        keys = Arrays.copyOf(keys, size);
+        hashes = Arrays.copyOf(hashes, size);
+        values = Arrays.copyOf(values, size);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(table, 0);
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, V>> iterator() {
+                return new OpenHashing.EntryIterator<>(size) {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    protected Entry<String, V> entry(int index) {
+                        return new SimpleImmutableEntry<>(keys[index], (V) values[index]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new OpenHashing.EntryIterator<>(size) {
+                    @Override
+                    protected V entry(int index) {
+                        return (V) values[index];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+}
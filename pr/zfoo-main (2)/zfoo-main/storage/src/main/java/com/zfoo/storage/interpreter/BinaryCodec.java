@@ -0,0 +1,416 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.interpreter;
+
+import com.zfoo.protocol.util.ReflectionUtils;
+import com.zfoo.storage.util.FieldAccessor;
+import com.zfoo.storage.util.ResourceAccessor;
+import com.zfoo.storage.util.StringPool;
+import org.springframework.lang.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * 数组，List，Map和对象属性在二进制快照中的编码，按照属性的泛型类型递归写入，加载时直接创建对象，不需要再解析json
+ * <pre>
+ * 数组，集合    int长度，-1表示null，之后是每一个元素
+ * Map          int长度，-1表示null，之后是每一个key和value
+ * 对象         boolean是否为null，之后按照属性的顺序写入每个属性的值
+ * 标量         和BinaryFormat中对应的类型标记一样
+ * </pre>
+ * 创建的对象和原来的json转换器的结果一致：List属性为只读的ArrayList，Map属性为HashMap，对象中的集合为jackson默认的类型；
+ * 接口，抽象类，泛型参数，没有无参构造器或者有final属性的对象，以及jdk中的其它类型无法还原，整个属性仍然写入json
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public abstract class BinaryCodec {
+
+    /**
+     * 资源类的属性的编码，无法编码的属性返回null，使用json
+     */
+    @Nullable
+    public static BinaryCodec valueOf(Field field) {
+        var type = field.getGenericType();
+        try {
+            if (type instanceof Class) {
+                var clazz = (Class<?>) type;
+                if (clazz.isArray() || isObjectClass(clazz)) {
+                    return create(type, new HashMap<>());
+                }
+            } else if (type instanceof ParameterizedType) {
+                // 和JsonToListConverter，JsonToMapConverter一致，只支持泛型参数为普通类的List和Map属性
+                var parameterizedType = (ParameterizedType) type;
+                var rawType = parameterizedType.getRawType();
+                var arguments = parameterizedType.getActualTypeArguments();
+                if (rawType == List.class && arguments[0] instanceof Class) {
+                    var elementCodec = create(arguments[0], new HashMap<>());
+                    return new CollectionCodec(ArrayList::new, true, elementCodec);
+                } else if (rawType == Map.class && arguments[0] instanceof Class && arguments[1] instanceof Class) {
+                    var objectCodecs = new HashMap<Class<?>, ObjectCodec>();
+                    return new MapCodec(HashMap::new, create(arguments[0], objectCodecs), create(arguments[1], objectCodecs));
+                }
+            }
+        } catch (UnsupportedTypeException e) {
+            // 无法编码，使用json
+        }
+        return null;
+    }
+
+    /**
+     * @return 描述编码的结构，属性的泛型类型相同但是对象中的属性改变了，描述也会改变，用于检查快照和资源类是否一致
+     */
+    public String descriptor() {
+        var builder = new StringBuilder();
+        describe(builder, new HashSet<>());
+        return builder.toString();
+    }
+
+    public abstract void write(DataOutput output, Object value) throws IOException;
+
+    public abstract Object read(DataInput input, StringPool stringPool) throws IOException;
+
+    abstract void describe(StringBuilder builder, Set<ObjectCodec> described);
+
+
+    private static BinaryCodec create(Type type, Map<Class<?>, ObjectCodec> objectCodecs) {
+        if (type instanceof Class) {
+            var clazz = (Class<?>) type;
+            if (clazz.isArray()) {
+                return new ArrayCodec(clazz.getComponentType(), create(clazz.getComponentType(), objectCodecs));
+            }
+            var tag = BinaryFormat.tagOf(clazz);
+            if (tag != BinaryFormat.JSON) {
+                return new ValueCodec(clazz, tag);
+            }
+            if (isObjectClass(clazz)) {
+                return createObjectCodec(clazz, objectCodecs);
+            }
+        } else if (type instanceof ParameterizedType) {
+            var parameterizedType = (ParameterizedType) type;
+            var rawType = parameterizedType.getRawType();
+            var arguments = parameterizedType.getActualTypeArguments();
+            // 对象中的集合由jackson创建，使用jackson对于接口的默认实现
+            if (rawType == List.class || rawType == Collection.class || rawType == ArrayList.class) {
+                return new CollectionCodec(ArrayList::new, false, create(arguments[0], objectCodecs));
+            } else if (rawType == Set.class || rawType == HashSet.class) {
+                return new CollectionCodec(HashSet::new, false, create(arguments[0], objectCodecs));
+            } else if (rawType == LinkedHashSet.class) {
+                return new CollectionCodec(LinkedHashSet::new, false, create(arguments[0], objectCodecs));
+            } else if (rawType == Map.class || rawType == LinkedHashMap.class) {
+                return new MapCodec(LinkedHashMap::new, create(arguments[0], objectCodecs), create(arguments[1], objectCodecs));
+            } else if (rawType == HashMap.class) {
+                return new MapCodec(HashMap::new, create(arguments[0], objectCodecs), create(arguments[1], objectCodecs));
+            }
+        }
+        throw UnsupportedTypeException.INSTANCE;
+    }
+
+    private static ObjectCodec createObjectCodec(Class<?> clazz, Map<Class<?>, ObjectCodec> objectCodecs) {
+        // 对象的属性中可能引用自己的类型，先放入再创建属性的编码
+        var codec = objectCodecs.get(clazz);
+        if (codec != null) {
+            return codec;
+        }
+        codec = new ObjectCodec(clazz);
+        objectCodecs.put(clazz, codec);
+        var fields = ReflectionUtils.notStaticAndTransientFields(clazz);
+        var accessors = new FieldAccessor[fields.size()];
+        var codecs = new BinaryCodec[fields.size()];
+        for (var i = 0; i < fields.size(); i++) {
+            var field = fields.get(i);
+            if (Modifier.isFinal(field.getModifiers())) {
+                throw UnsupportedTypeException.INSTANCE;
+            }
+            accessors[i] = FieldAccessor.valueOf(field);
+            codecs[i] = create(field.getGenericType(), objectCodecs);
+        }
+        codec.init(fields, accessors, codecs);
+        return codec;
+    }
+
+    /**
+     * 可以按属性还原的普通对象，jdk中的类型（UUID，BigDecimal等）只能通过json还原
+     */
+    private static boolean isObjectClass(Class<?> clazz) {
+        if (clazz.isPrimitive() || clazz.isArray() || clazz.isInterface() || clazz.isEnum() || Modifier.isAbstract(clazz.getModifiers())) {
+            return false;
+        }
+        if (clazz.getName().startsWith("java.") || clazz.getName().startsWith("javax.")) {
+            return false;
+        }
+        if (clazz.isMemberClass() && !Modifier.isStatic(clazz.getModifiers())) {
+            return false;
+        }
+        try {
+            clazz.getDeclaredConstructor();
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static void writeLength(DataOutput output, Object value, int length) throws IOException {
+        output.writeInt(value == null ? -1 : length);
+    }
+
+    /**
+     * 标量，和BinaryFormat的类型标记的编码一致
+     */
+    private static class ValueCodec extends BinaryCodec {
+        private final Class<?> type;
+        private final byte tag;
+
+        private ValueCodec(Class<?> type, byte tag) {
+            this.type = type;
+            this.tag = tag;
+        }
+
+        @Override
+        public void write(DataOutput output, Object value) throws IOException {
+            BinaryFormat.writeValue(output, tag, value);
+        }
+
+        @Override
+        public Object read(DataInput input, StringPool stringPool) throws IOException {
+            return BinaryFormat.readValue(input, tag, type, stringPool);
+        }
+
+
+        @Override
+        void describe(StringBuilder builder, Set<ObjectCodec> described) {
+            builder.append(type.getName());
+        }
+    }
+
+    private static class ArrayCodec extends BinaryCodec {
+        private final Class<?> componentType;
+        private final BinaryCodec componentCodec;
+
+        private ArrayCodec(Class<?> componentType, BinaryCodec componentCodec) {
+            this.componentType = componentType;
+            this.componentCodec = componentCodec;
+        }
+
+        @Override
+        public void write(DataOutput output, Object value) throws IOException {
+            var length = value == null ? -1 : Array.getLength(value);
+            output.writeInt(length);
+            for (var i = 0; i < length; i++) {
+                componentCodec.write(output, Array.get(value, i));
+            }
+        }
+
+        @Override
+        public Object read(DataInput input, StringPool stringPool) throws IOException {
+            var length = input.readInt();
+            if (length < 0) {
+                return null;
+            }
+            var array = Array.newInstance(componentType, length);
+            for (var i = 0; i < length; i++) {
+                Array.set(array, i, componentCodec.read(input, stringPool));
+            }
+            return array;
+        }
+
+
+        @Override
+        void describe(StringBuilder builder, Set<ObjectCodec> described) {
+            componentCodec.describe(builder, described);
+            builder.append("[]");
+        }
+    }
+
+    private static class CollectionCodec extends BinaryCodec {
+        private final IntFunction<Collection<Object>> factory;
+        // List属性的转换器返回的是只读的List
+        private final boolean unmodifiable;
+        private final BinaryCodec elementCodec;
+
+        private CollectionCodec(IntFunction<Collection<Object>> factory, boolean unmodifiable, BinaryCodec elementCodec) {
+            this.factory = factory;
+            this.unmodifiable = unmodifiable;
+            this.elementCodec = elementCodec;
+        }
+
+        @Override
+        public void write(DataOutput output, Object value) throws IOException {
+            var collection = (Collection<?>) value;
+            writeLength(output, value, collection == null ? 0 : collection.size());
+            if (collection == null) {
+                return;
+            }
+            for (var element : collection) {
+                elementCodec.write(output, element);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object read(DataInput input, StringPool stringPool) throws IOException {
+            var length = input.readInt();
+            if (length < 0) {
+                return null;
+            }
+            var collection = factory.apply(length);
+            for (var i = 0; i < length; i++) {
+                collection.add(elementCodec.read(input, stringPool));
+            }
+            return unmodifiable ? Collections.unmodifiableList((List<Object>) collection) : collection;
+        }
+
+
+        @Override
+        void describe(StringBuilder builder, Set<ObjectCodec> described) {
+            builder.append(factory.apply(0).getClass().getSimpleName()).append('<');
+            elementCodec.describe(builder, described);
+            builder.append('>');
+        }
+    }
+
+    private static class MapCodec extends BinaryCodec {
+        private final IntFunction<Map<Object, Object>> factory;
+        private final BinaryCodec keyCodec;
+        private final BinaryCodec valueCodec;
+
+        private MapCodec(IntFunction<Map<Object, Object>> factory, BinaryCodec keyCodec, BinaryCodec valueCodec) {
+            this.factory = factory;
+            this.keyCodec = keyCodec;
+            this.valueCodec = valueCodec;
+        }
+
+        @Override
+        public void write(DataOutput output, Object value) throws IOException {
+            var map = (Map<?, ?>) value;
+            writeLength(output, value, map == null ? 0 : map.size());
+            if (map == null) {
+                return;
+            }
+            for (var entry : map.entrySet()) {
+                keyCodec.write(output, entry.getKey());
+                valueCodec.write(output, entry.getValue());
+            }
+        }
+
+        @Override
+        public Object read(DataInput input, StringPool stringPool) throws IOException {
+            var length = input.readInt();
+            if (length < 0) {
+                return null;
+            }
+            var map = factory.apply(length * 4 / 3 + 1);
+            for (var i = 0; i < length; i++) {
+                var key = keyCodec.read(input, stringPool);
+                map.put(key, valueCodec.read(input, stringPool));
+            }
+            return map;
+        }
+
+
+        @Override
+        void describe(StringBuilder builder, Set<ObjectCodec> described) {
+            builder.append(factory.apply(0).getClass().getSimpleName()).append('<');
+            keyCodec.describe(builder, described);
+            builder.append(',');
+            valueCodec.describe(builder, described);
+            builder.append('>');
+        }
+    }
+
+    private static class ObjectCodec extends BinaryCodec {
+        private final Class<?> clazz;
+        private final ResourceAccessor<?> constructor;
+        private List<Field> fields;
+        private FieldAccessor[] accessors;
+        private BinaryCodec[] codecs;
+
+        private ObjectCodec(Class<?> clazz) {
+            this.clazz = clazz;
+            this.constructor = ResourceAccessor.valueOf(clazz);
+        }
+
+        private void init(List<Field> fields, FieldAccessor[] accessors, BinaryCodec[] codecs) {
+            this.fields = fields;
+            this.accessors = accessors;
+            this.codecs = codecs;
+        }
+
+        @Override
+        public void write(DataOutput output, Object value) throws IOException {
+            output.writeBoolean(value != null);
+            if (value == null) {
+                return;
+            }
+            for (var i = 0; i < codecs.length; i++) {
+                codecs[i].write(output, accessors[i].get(value));
+            }
+        }
+
+        @Override
+        public Object read(DataInput input, StringPool stringPool) throws IOException {
+            if (!input.readBoolean()) {
+                return null;
+            }
+            var instance = constructor.newInstance();
+            for (var i = 0; i < codecs.length; i++) {
+                var value = codecs[i].read(input, stringPool);
+                // 基本类型的属性在json中没有值的时候保持默认值
+                if (value != null) {
+                    accessors[i].set(instance, value);
+                }
+            }
+            return instance;
+        }
+
+
+        @Override
+        void describe(StringBuilder builder, Set<ObjectCodec> described) {
+            builder.append(clazz.getName());
+            if (!described.add(this)) {
+                return;
+            }
+            builder.append('{');
+            for (var i = 0; i < codecs.length; i++) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+                builder.append(fields.get(i).getName()).append(':');
+                codecs[i].describe(builder, described);
+            }
+            builder.append('}');
+        }
+    }
+
+    /**
+     * 无法编码的类型，只在创建编码的时候使用，不需要堆栈
+     */
+    private static class UnsupportedTypeException extends RuntimeException {
+        private static final UnsupportedTypeException INSTANCE = new UnsupportedTypeException();
+
+        private UnsupportedTypeException() {
+            super(null, null, false, false);
+        }
+    }
+
+}
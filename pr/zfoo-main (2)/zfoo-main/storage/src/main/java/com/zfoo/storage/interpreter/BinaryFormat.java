@@ -0,0 +1,497 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.interpreter;
+
+import com.zfoo.protocol.exception.RunException;
+import com.zfoo.protocol.util.JsonUtils;
+import com.zfoo.storage.util.FieldAccessor;
+import com.zfoo.storage.util.StringPool;
+import org.springframework.core.convert.ConverterNotFoundException;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.converter.GenericConverter;
+import org.springframework.util.ClassUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+/**
+ * 配置表二进制快照的格式，快照中的值已经是属性的类型，加载时不需要再解析字符串
+ * <pre>
+ * int     魔数 ZFSB
+ * short   版本号
+ * string  资源类的名称
+ * short   属性的数量，每个属性为：string名称，byte类型标记，string泛型类型的名称（COMPOSITE为BinaryCodec的结构描述）
+ * short   主键属性的位置
+ * int     行数
+ * long    行数据的字节数
+ * rows    每一行按照属性的顺序写入每个属性的值
+ * ids     主键区，每一行为：主键的值，long行数据的偏移
+ * short   索引的数量，每个索引为：string属性名称，boolean是否唯一，byte类型标记，每一行的索引值
+ * </pre>
+ * 基本类型直接写入；包装类型，枚举，日期，Class前面有一个byte表示是否为null；String写入字节长度，-1表示null；
+ * 数组，List，Map和对象属性先写入int字节数，再使用BinaryCodec按照泛型类型递归写入，加载时直接创建对象，代码中删除的属性按字节数跳过；
+ * 无法还原的复杂属性写入json，加载时使用属性原来的转换器解析；UUID，Locale这些json中为字符串的值写入字符串本身，和转换器解析的内容互逆
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public abstract class BinaryFormat {
+
+    public static final int MAGIC = 0x5A465342;
+    public static final short VERSION = 3;
+
+    public static final byte INT = 1;
+    public static final byte LONG = 2;
+    public static final byte SHORT = 3;
+    public static final byte BYTE = 4;
+    public static final byte FLOAT = 5;
+    public static final byte DOUBLE = 6;
+    public static final byte BOOLEAN = 7;
+    public static final byte CHAR = 8;
+    // 包装类型的标记为基本类型的标记加上BOXED
+    public static final byte BOXED = 10;
+    public static final byte STRING = 20;
+    public static final byte ENUM = 21;
+    public static final byte DATE = 22;
+    public static final byte LOCAL_DATE = 23;
+    public static final byte LOCAL_DATE_TIME = 24;
+    public static final byte LOCAL_TIME = 25;
+    public static final byte CLASS = 26;
+    public static final byte COMPOSITE = 27;
+    public static final byte JSON = 30;
+
+    private static final TypeDescriptor STRING_TYPE = TypeDescriptor.valueOf(String.class);
+
+    public static byte tagOf(Class<?> type) {
+        if (type == int.class) {
+            return INT;
+        } else if (type == long.class) {
+            return LONG;
+        } else if (type == short.class) {
+            return SHORT;
+        } else if (type == byte.class) {
+            return BYTE;
+        } else if (type == float.class) {
+            return FLOAT;
+        } else if (type == double.class) {
+            return DOUBLE;
+        } else if (type == boolean.class) {
+            return BOOLEAN;
+        } else if (type == char.class) {
+            return CHAR;
+        } else if (type == Integer.class) {
+            return INT + BOXED;
+        } else if (type == Long.class) {
+            return LONG + BOXED;
+        } else if (type == Short.class) {
+            return SHORT + BOXED;
+        } else if (type == Byte.class) {
+            return BYTE + BOXED;
+        } else if (type == Float.class) {
+            return FLOAT + BOXED;
+        } else if (type == Double.class) {
+            return DOUBLE + BOXED;
+        } else if (type == Boolean.class) {
+            return BOOLEAN + BOXED;
+        } else if (type == Character.class) {
+            return CHAR + BOXED;
+        } else if (type == String.class) {
+            return STRING;
+        } else if (type.isEnum()) {
+            return ENUM;
+        } else if (type == Date.class) {
+            return DATE;
+        } else if (type == LocalDate.class) {
+            return LOCAL_DATE;
+        } else if (type == LocalDateTime.class) {
+            return LOCAL_DATE_TIME;
+        } else if (type == LocalTime.class) {
+            return LOCAL_TIME;
+        } else if (type == Class.class) {
+            return CLASS;
+        }
+        return JSON;
+    }
+
+    /**
+     * 资源类属性的类型标记，可以使用BinaryCodec编码的复杂属性为COMPOSITE
+     */
+    public static byte tagOf(Field field) {
+        var tag = tagOf(field.getType());
+        return tag == JSON && BinaryCodec.valueOf(field) != null ? COMPOSITE : tag;
+    }
+
+    /**
+     * 写在快照头部的属性类型，COMPOSITE的属性使用编码的结构描述，对象中的属性改变之后快照不能再使用
+     */
+    public static String typeName(Field field, byte tag) {
+        if (tag == COMPOSITE) {
+            return BinaryCodec.valueOf(field).descriptor();
+        }
+        return field.getGenericType().getTypeName();
+    }
+
+    public static void writeString(DataOutput output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    public static String readString(DataInput input) throws IOException {
+        var length = input.readInt();
+        if (length < 0) {
+            return null;
+        }
+        var bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeValue(DataOutput output, byte tag, Object value) throws IOException {
+        if (tag == STRING) {
+            writeString(output, (String) value);
+            return;
+        }
+        if (tag > BOXED) {
+            output.writeBoolean(value != null);
+            if (value == null) {
+                return;
+            }
+        }
+        switch (tag) {
+            case INT:
+            case INT + BOXED:
+                output.writeInt((Integer) value);
+                break;
+            case LONG:
+            case LONG + BOXED:
+                output.writeLong((Long) value);
+                break;
+            case SHORT:
+            case SHORT + BOXED:
+                output.writeShort((Short) value);
+                break;
+            case BYTE:
+            case BYTE + BOXED:
+                output.writeByte((Byte) value);
+                break;
+            case FLOAT:
+            case FLOAT + BOXED:
+                output.writeFloat((Float) value);
+                break;
+            case DOUBLE:
+            case DOUBLE + BOXED:
+                output.writeDouble((Double) value);
+                break;
+            case BOOLEAN:
+            case BOOLEAN + BOXED:
+                output.writeBoolean((Boolean) value);
+                break;
+            case CHAR:
+            case CHAR + BOXED:
+                output.writeChar((Character) value);
+                break;
+            case ENUM:
+                writeString(output, ((Enum<?>) value).name());
+                break;
+            case DATE:
+                output.writeLong(((Date) value).getTime());
+                break;
+            case LOCAL_DATE:
+                output.writeLong(((LocalDate) value).toEpochDay());
+                break;
+            case LOCAL_DATE_TIME:
+                var dateTime = (LocalDateTime) value;
+                output.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+                output.writeInt(dateTime.getNano());
+                break;
+            case LOCAL_TIME:
+                output.writeLong(((LocalTime) value).toNanoOfDay());
+                break;
+            case CLASS:
+                writeString(output, ((Class<?>) value).getName());
+                break;
+            case JSON:
+                writeString(output, jsonContent(value));
+                break;
+            default:
+                // COMPOSITE需要属性的BinaryCodec，由BinaryField写入
+                throw new RunException("不支持的快照类型标记[{}]", tag);
+        }
+    }
+
+    /**
+     * 读取时使用属性原来的转换器解析，集合和对象的转换器解析json；UUID，BigDecimal这些类型的转换器解析的是字符串本身，json的字符串需要去掉引号
+     */
+    private static String jsonContent(Object value) {
+        var json = JsonUtils.object2String(value);
+        return json.startsWith("\"") ? JsonUtils.string2Object(json, String.class) : json;
+    }
+
+    /**
+     * 读取标量的值，type为属性的类型，只有枚举需要
+     */
+    public static Object readValue(DataInput input, byte tag, Class<?> type, StringPool stringPool) throws IOException {
+        if (tag == STRING) {
+            return stringPool.intern(readString(input));
+        }
+        if (tag > BOXED && !input.readBoolean()) {
+            return null;
+        }
+        switch (tag) {
+            case INT:
+            case INT + BOXED:
+                return input.readInt();
+            case LONG:
+            case LONG + BOXED:
+                return input.readLong();
+            case SHORT:
+            case SHORT + BOXED:
+                return input.readShort();
+            case BYTE:
+            case BYTE + BOXED:
+                return input.readByte();
+            case FLOAT:
+            case FLOAT + BOXED:
+                return input.readFloat();
+            case DOUBLE:
+            case DOUBLE + BOXED:
+                return input.readDouble();
+            case BOOLEAN:
+            case BOOLEAN + BOXED:
+                return input.readBoolean();
+            case CHAR:
+            case CHAR + BOXED:
+                return input.readChar();
+            case ENUM:
+                return enumValue(type, readString(input));
+            case DATE:
+                return new Date(input.readLong());
+            case LOCAL_DATE:
+                return LocalDate.ofEpochDay(input.readLong());
+            case LOCAL_DATE_TIME:
+                return LocalDateTime.ofEpochSecond(input.readLong(), input.readInt(), ZoneOffset.UTC);
+            case LOCAL_TIME:
+                return LocalTime.ofNanoOfDay(input.readLong());
+            case CLASS:
+                return classValue(readString(input));
+            default:
+                throw new RunException("不支持的快照类型标记[{}]", tag);
+        }
+    }
+
+    /**
+     * 跳过一个值
+     */
+    public static void skipValue(DataInput input, byte tag) throws IOException {
+        if (tag == STRING) {
+            skipBytes(input, input.readInt());
+            return;
+        }
+        if (tag > BOXED && !input.readBoolean()) {
+            return;
+        }
+        switch (tag) {
+            case INT:
+            case INT + BOXED:
+            case FLOAT:
+            case FLOAT + BOXED:
+                skipBytes(input, 4);
+                break;
+            case LONG:
+            case LONG + BOXED:
+            case DOUBLE:
+            case DOUBLE + BOXED:
+            case DATE:
+            case LOCAL_DATE:
+            case LOCAL_TIME:
+                skipBytes(input, 8);
+                break;
+            case SHORT:
+            case SHORT + BOXED:
+            case CHAR:
+            case CHAR + BOXED:
+                skipBytes(input, 2);
+                break;
+            case BYTE:
+            case BYTE + BOXED:
+            case BOOLEAN:
+            case BOOLEAN + BOXED:
+                skipBytes(input, 1);
+                break;
+            case LOCAL_DATE_TIME:
+                skipBytes(input, 12);
+                break;
+            case ENUM:
+            case CLASS:
+            case COMPOSITE:
+            case JSON:
+                skipBytes(input, input.readInt());
+                break;
+            default:
+                throw new RunException("不支持的快照类型标记[{}]", tag);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object enumValue(Class<?> type, String name) {
+        if (name == null) {
+            return null;
+        }
+        return Enum.valueOf((Class<? extends Enum>) type, name);
+    }
+
+    /**
+     * Class.getName()的逆操作，基本类型和数组的名称也可以解析
+     */
+    private static Object classValue(String name) {
+        try {
+            return ClassUtils.forName(name, ClassUtils.getDefaultClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            throw new RunException(e, "二进制快照中的类[{}]无法加载", name);
+        }
+    }
+
+    public static void skipBytes(DataInput input, int length) throws IOException {
+        // DataInput.skipBytes可能一次跳过的字节数比要求的少
+        while (length > 0) {
+            var skipped = input.skipBytes(length);
+            if (skipped <= 0) {
+                input.readByte();
+                skipped = 1;
+            }
+            length -= skipped;
+        }
+    }
+
+    /**
+     * 快照中的一个属性，field为null表示代码中已经没有这个属性，读取时直接跳过
+     */
+    public static class BinaryField {
+        public final String name;
+        public final byte tag;
+        public final String typeName;
+        public final Field field;
+        public final FieldAccessor accessor;
+        private final TypeDescriptor typeDescriptor;
+        private final GenericConverter converter;
+        // COMPOSITE属性的编码
+        private final BinaryCodec codec;
+
+        public BinaryField(String name, byte tag, String typeName, Field field) {
+            this.name = name;
+            this.tag = tag;
+            this.typeName = typeName;
+            this.field = field;
+            if (field == null) {
+                this.accessor = null;
+                this.typeDescriptor = null;
+                this.converter = null;
+                this.codec = null;
+            } else {
+                this.accessor = FieldAccessor.valueOf(field);
+                this.typeDescriptor = new TypeDescriptor(field);
+                this.converter = tag == JSON ? ResourceInterpreter.conversionService.findConverter(STRING_TYPE, typeDescriptor) : null;
+                this.codec = tag == COMPOSITE ? BinaryCodec.valueOf(field) : null;
+            }
+        }
+
+        public void write(DataOutput output, Object value) throws IOException {
+            if (tag == COMPOSITE) {
+                var bytes = new ByteArrayOutputStream();
+                codec.write(new DataOutputStream(bytes), value);
+                output.writeInt(bytes.size());
+                output.write(bytes.toByteArray());
+            } else {
+                writeValue(output, tag, value);
+            }
+        }
+
+        /**
+         * 读取一个值并注入到instance中，基本类型直接赋值不装箱
+         */
+        public void inject(DataInput input, Object instance, StringPool stringPool) throws IOException {
+            switch (tag) {
+                case INT:
+                    accessor.setInt(instance, input.readInt());
+                    return;
+                case LONG:
+                    accessor.setLong(instance, input.readLong());
+                    return;
+                case SHORT:
+                    accessor.setShort(instance, input.readShort());
+                    return;
+                case BYTE:
+                    accessor.setByte(instance, input.readByte());
+                    return;
+                case FLOAT:
+                    accessor.setFloat(instance, input.readFloat());
+                    return;
+                case DOUBLE:
+                    accessor.setDouble(instance, input.readDouble());
+                    return;
+                case BOOLEAN:
+                    accessor.setBoolean(instance, input.readBoolean());
+                    return;
+                default:
+                    accessor.set(instance, readValue(input, stringPool));
+            }
+        }
+
+        public Object readValue(DataInput input, StringPool stringPool) throws IOException {
+            switch (tag) {
+                case COMPOSITE:
+                    // 字节数只在跳过的时候使用
+                    input.readInt();
+                    return codec.read(input, stringPool);
+                case JSON:
+                    return stringPool.internValue(jsonValue(readString(input)));
+                default:
+                    return BinaryFormat.readValue(input, tag, field == null ? null : field.getType(), stringPool);
+            }
+        }
+
+        /**
+         * 代码中已经删除的属性，只需要跳过对应的字节
+         */
+        public void skip(DataInput input) throws IOException {
+            skipValue(input, tag);
+        }
+
+        private Object jsonValue(String content) {
+            if (content == null) {
+                return null;
+            }
+            if (converter == null) {
+                throw new ConverterNotFoundException(STRING_TYPE, typeDescriptor);
+            }
+            return converter.convert(content, STRING_TYPE, typeDescriptor);
+        }
+    }
+
+}
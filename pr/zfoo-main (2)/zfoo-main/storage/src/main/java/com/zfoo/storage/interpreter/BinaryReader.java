@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.interpreter;
+
+import com.zfoo.protocol.exception.RunException;
+import com.zfoo.protocol.util.ReflectionUtils;
+import com.zfoo.storage.interpreter.BinaryFormat.BinaryField;
+import com.zfoo.storage.util.ResourceAccessor;
+import com.zfoo.storage.util.StringPool;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.function.Consumer;
+
+/**
+ * 读取BinaryFormat格式的二进制快照，不经过POI，csv，json的解析，也不需要把字符串转换为属性的类型
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public abstract class BinaryReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public static <T> void read(InputStream inputStream, Class<T> clazz, Consumer<T> consumer, StringPool stringPool) {
+        var input = new DataInputStream(new BufferedInputStream(inputStream, BUFFER_SIZE));
+        try {
+            var header = readHeader(input, clazz);
+            var accessor = ResourceAccessor.valueOf(clazz);
+            for (var i = 0; i < header.rowCount; i++) {
+                consumer.accept(readRow(input, header.fields, accessor, stringPool));
+            }
+            // 主键区和索引区给内存映射的Storage使用，普通的Storage在put的时候自己建立索引
+        } catch (IOException e) {
+            throw new RunException(e, "静态资源[{}]异常，无法读取二进制快照", clazz.getSimpleName());
+        }
+    }
+
+    public static <T> T readRow(DataInput input, BinaryField[] fields, ResourceAccessor<T> accessor, StringPool stringPool) throws IOException {
+        var instance = accessor.newInstance();
+        for (var field : fields) {
+            if (field.field == null) {
+                field.skip(input);
+            } else {
+                field.inject(input, instance, stringPool);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 读取快照的头部，并且检查快照中的属性和资源类中的属性是否一致
+     */
+    public static BinaryHeader readHeader(DataInput input, Class<?> clazz) throws IOException {
+        if (input.readInt() != BinaryFormat.MAGIC) {
+            throw new RunException("资源[class:{}]的文件不是二进制快照", clazz.getSimpleName());
+        }
+        var version = input.readShort();
+        if (version != BinaryFormat.VERSION) {
+            throw new RunException("资源[class:{}]的二进制快照版本[{}]和当前的版本[{}]不一致，请重新导出快照", clazz.getSimpleName(), version, BinaryFormat.VERSION);
+        }
+        var name = BinaryFormat.readString(input);
+        if (!clazz.getSimpleName().equals(name)) {
+            throw new RunException("资源[class:{}]的二进制快照中的资源类为[{}]", clazz.getSimpleName(), name);
+        }
+
+        var fieldMap = new HashMap<String, Field>();
+        for (var field : ReflectionUtils.notStaticAndTransientFields(clazz)) {
+            fieldMap.put(field.getName(), field);
+        }
+
+        var fieldSize = input.readShort();
+        var fields = new BinaryField[fieldSize];
+        for (var i = 0; i < fieldSize; i++) {
+            var fieldName = BinaryFormat.readString(input);
+            var tag = input.readByte();
+            var typeName = BinaryFormat.readString(input);
+            var field = fieldMap.remove(fieldName);
+            if (field != null && (tag != BinaryFormat.tagOf(field) || !BinaryFormat.typeName(field, tag).equals(typeName))) {
+                throw new RunException("资源类[class:{}]的属性[field:{}]的类型[{}]和二进制快照中的类型[{}]不一致，请重新导出快照", clazz.getSimpleName(), fieldName, field.getGenericType().getTypeName(), typeName);
+            }
+            fields[i] = new BinaryField(fieldName, tag, typeName, field);
+        }
+        if (!fieldMap.isEmpty()) {
+            throw new RunException("资源类[class:{}]的声明属性{}在二进制快照中不存在，请重新导出快照", clazz.getSimpleName(), fieldMap.keySet());
+        }
+
+        var header = new BinaryHeader();
+        header.fields = fields;
+        header.idField = input.readShort();
+        header.rowCount = input.readInt();
+        header.rowSize = input.readLong();
+        return header;
+    }
+
+    public static class BinaryHeader {
+        public BinaryField[] fields;
+        // 主键属性在fields中的位置
+        public int idField;
+        public int rowCount;
+        // 行数据的字节数
+        public long rowSize;
+    }
+
+}
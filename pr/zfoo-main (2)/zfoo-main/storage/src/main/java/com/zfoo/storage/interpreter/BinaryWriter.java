@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.interpreter;
+
+import com.zfoo.protocol.exception.RunException;
+import com.zfoo.protocol.util.ReflectionUtils;
+import com.zfoo.storage.interpreter.BinaryFormat.BinaryField;
+import com.zfoo.storage.model.vo.IndexDef;
+import com.zfoo.storage.model.vo.Storage;
+import com.zfoo.storage.util.FieldAccessor;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把已经加载好的Storage写成BinaryFormat格式的二进制快照
+ * <p>
+ * 行数据先写到临时文件中，得到每一行的偏移和行数据的总字节数之后再拷贝到快照中，快照的大小不受内存和数组长度的限制
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public abstract class BinaryWriter {
+
+    public static void write(Class<?> clazz, Storage<?, ?> storage, OutputStream outputStream) throws IOException {
+        var fields = ReflectionUtils.notStaticAndTransientFields(clazz);
+        var binaryFields = new BinaryField[fields.size()];
+        var accessors = new FieldAccessor[fields.size()];
+        var idField = -1;
+        var idName = storage.getIdDef().getField().getName();
+        for (var i = 0; i < fields.size(); i++) {
+            var field = fields.get(i);
+            var tag = BinaryFormat.tagOf(field);
+            binaryFields[i] = new BinaryField(field.getName(), tag, BinaryFormat.typeName(field, tag), field);
+            accessors[i] = FieldAccessor.valueOf(field);
+            if (field.getName().equals(idName)) {
+                idField = i;
+            }
+        }
+        if (idField < 0) {
+            throw new RunException("资源类[class:{}]没有主键属性，无法导出二进制快照", clazz.getSimpleName());
+        }
+
+        var values = new ArrayList<>(storage.getAll());
+        var rowFile = Files.createTempFile(clazz.getSimpleName(), ".rows");
+        try {
+            // 先写行数据，记录每一行的偏移
+            var offsets = new long[values.size()];
+            long rowSize;
+            try (var rowCounter = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(rowFile)))) {
+                var rowOutput = new DataOutputStream(rowCounter);
+                for (var row = 0; row < values.size(); row++) {
+                    offsets[row] = rowCounter.count;
+                    var value = values.get(row);
+                    for (var i = 0; i < fields.size(); i++) {
+                        binaryFields[i].write(rowOutput, accessors[i].get(value));
+                    }
+                }
+                rowOutput.flush();
+                rowSize = rowCounter.count;
+            }
+            write(clazz, binaryFields, accessors, idField, values, offsets, rowFile, rowSize, outputStream);
+        } finally {
+            Files.deleteIfExists(rowFile);
+        }
+    }
+
+    private static void write(Class<?> clazz, BinaryField[] fields, FieldAccessor[] accessors, int idField
+            , List<?> values, long[] offsets, Path rowFile, long rowSize, OutputStream outputStream) throws IOException {
+        var output = new DataOutputStream(new BufferedOutputStream(outputStream));
+        output.writeInt(BinaryFormat.MAGIC);
+        output.writeShort(BinaryFormat.VERSION);
+        BinaryFormat.writeString(output, clazz.getSimpleName());
+        output.writeShort(fields.length);
+        for (var field : fields) {
+            BinaryFormat.writeString(output, field.name);
+            output.writeByte(field.tag);
+            BinaryFormat.writeString(output, field.typeName);
+        }
+        output.writeShort(idField);
+        output.writeInt(values.size());
+        output.writeLong(rowSize);
+        Files.copy(rowFile, output);
+
+        // 主键区
+        for (var row = 0; row < values.size(); row++) {
+            fields[idField].write(output, accessors[idField].get(values.get(row)));
+            output.writeLong(offsets[row]);
+        }
+
+        // 索引区
+        var indexDefs = IndexDef.createResourceIndexes(clazz).values();
+        output.writeShort(indexDefs.size());
+        for (var indexDef : indexDefs) {
+            var indexField = indexDef.getField();
+            var tag = BinaryFormat.tagOf(indexField.getType());
+            BinaryFormat.writeString(output, indexField.getName());
+            output.writeBoolean(indexDef.isUnique());
+            output.writeByte(tag);
+            for (var value : values) {
+                BinaryFormat.writeValue(output, tag, indexDef.getAccessor().get(value));
+            }
+        }
+        output.flush();
+    }
+
+    /**
+     * DataOutputStream.size()到Integer.MAX_VALUE就不再增加，行数据的偏移自己使用long计数
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            count += length;
+        }
+    }
+
+}
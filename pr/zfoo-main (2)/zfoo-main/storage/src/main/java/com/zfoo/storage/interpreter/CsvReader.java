@@ -34,23 +34,33 @@ import java.util.List;
 public abstract class CsvReader {
 
     public static ResourceData readResourceDataFromCSV(InputStream input, String fileName) {
+        var handler = new ResourceDataHandler(fileName);
+        read(input, fileName, handler);
+        return handler.toResourceData();
+    }
+
+    public static void read(InputStream input, String fileName, IResourceHandler handler) {
         var records = parseCsv(input, fileName);
         var iterator = records.iterator();
         var headers = getHeaders(iterator, fileName);
-        var rows = new ArrayList<List<String>>();
+        handler.header(headers);
+        // commons-csv解析的时候已经生成了整行的字符串，这里只能跳过不需要的列的回调
+        var projection = handler.projection();
         while (iterator.hasNext()) {
             var record = iterator.next();
-            var data = new ArrayList<String>();
-            for (var header : headers) {
-                var value = record.get(header.getIndex());
+            handler.startRow();
+            for (var i = 0; i < headers.size(); i++) {
+                if (projection != null && !projection[i]) {
+                    continue;
+                }
+                var value = record.get(headers.get(i).getIndex());
                 if (StringUtils.isBlank(value)) {
                     value = StringUtils.EMPTY;
                 }
-                data.add(value);
+                handler.cell(i, value);
             }
-            rows.add(data);
+            handler.endRow();
         }
-        return ResourceData.valueOf(fileName, headers, rows);
     }
 
 
@@ -16,14 +16,32 @@ import com.zfoo.protocol.exception.RunException;
 import com.zfoo.protocol.util.StringUtils;
 import com.zfoo.storage.model.resource.ResourceData;
 import com.zfoo.storage.model.resource.ResourceHeader;
+import com.zfoo.storage.util.CellStyleCache;
 import com.zfoo.storage.util.CellUtils;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
 import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
 
+import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.function.BiFunction;
 
 /**
  * @author meiwei666
@@ -32,15 +50,55 @@ import java.util.*;
 public abstract class ExcelReader {
 
     public static ResourceData readResourceDataFromExcel(InputStream inputStream, String fileName) {
+        var handler = new ResourceDataHandler(fileName);
+        read(inputStream, fileName, handler);
+        return handler.toResourceData();
+    }
+
+    public static void read(InputStream inputStream, String fileName, IResourceHandler handler) {
+        var input = FileMagic.prepareToCheckMagic(inputStream);
+        // xlsx使用SAX事件流的方式读取，xls只能使用完整的对象模型读取
+        if (isXlsx(input, fileName)) {
+            readXlsx(input, fileName, handler);
+            return;
+        }
+
         // 只读取代码里写的字段
-        var wb = createWorkbook(inputStream, fileName);
+        var wb = createWorkbook(input, fileName);
         // 默认取到第一个sheet页
-        var sheet = wb.getSheetAt(0);
+        readSheet(wb.getSheetAt(0), fileName, handler);
+    }
+
+    /**
+     * 一次读取Excel文件中的多个sheet页，文件和共享字符串表只解析一次，没有对应handler的sheet页直接跳过
+     *
+     * @param sheetHandlers sheet页的名称 -> 这个sheet页的handler
+     */
+    public static void readSheets(InputStream inputStream, String fileName, Map<String, IResourceHandler> sheetHandlers) {
+        var input = FileMagic.prepareToCheckMagic(inputStream);
+        if (isXlsx(input, fileName)) {
+            readXlsxSheets(input, fileName, sheetHandlers);
+            return;
+        }
+
+        var wb = createWorkbook(input, fileName);
+        for (var entry : sheetHandlers.entrySet()) {
+            var sheet = wb.getSheet(entry.getKey());
+            if (sheet == null) {
+                throw new RunException("Excel文件[{}]中没有sheet页[{}]", fileName, entry.getKey());
+            }
+            readSheet(sheet, fileName, entry.getValue());
+        }
+    }
+
+    private static void readSheet(Sheet sheet, String fileName, IResourceHandler handler) {
         var iterator = sheet.iterator();
         //设置所有列
         var headers = getHeaders(iterator, fileName);
+        handler.header(headers);
+        var projection = handler.projection();
 
-        var rows = new ArrayList<List<String>>();
+        var styleCache = new CellStyleCache();
         while (iterator.hasNext()) {
             var row = iterator.next();
 
@@ -49,15 +107,148 @@ public abstract class ExcelReader {
                 continue;
             }
 
-            var columns = new ArrayList<String>();
-            for (var header : headers) {
-                var cell = row.getCell(header.getIndex());
-                var content = CellUtils.getCellStringValue(cell);
-                columns.add(content);
+            handler.startRow();
+            for (var i = 0; i < headers.size(); i++) {
+                if (projection != null && !projection[i]) {
+                    continue;
+                }
+                var cell = row.getCell(headers.get(i).getIndex());
+                pushCell(handler, i, cell, styleCache);
             }
-            rows.add(columns);
+            handler.endRow();
+        }
+    }
+
+    /**
+     * 数字，布尔，日期单元格直接推送带类型的值，其它的单元格和CellUtils.getCellStringValue一样转换为字符串
+     */
+    private static void pushCell(IResourceHandler handler, int column, Cell cell, CellStyleCache styleCache) {
+        if (cell == null) {
+            handler.cell(column, StringUtils.EMPTY);
+            return;
+        }
+        var cellType = cell.getCellType();
+        if (cellType == CellType.FORMULA) {
+            cellType = cell.getCachedFormulaResultType();
+        }
+        switch (cellType) {
+            case NUMERIC:
+                var value = cell.getNumericCellValue();
+                var style = cell.getCellStyle();
+                var flags = 0;
+                if (style != null) {
+                    flags = styleCache.flags(style.getIndex());
+                    if (flags < 0) {
+                        flags = styleCache.put(style.getIndex(), style);
+                    }
+                }
+                if ((flags & CellStyleCache.DATE) != 0 && DateUtil.isValidExcelDate(value)) {
+                    handler.dateCell(column, cell.getDateCellValue());
+                } else {
+                    handler.numberCell(column, value, (flags & CellStyleCache.INTEGRAL) != 0 && (long) value == value);
+                }
+                break;
+            case BOOLEAN:
+                handler.booleanCell(column, cell.getBooleanCellValue());
+                break;
+            default:
+                handler.cell(column, CellUtils.getCellStringValue(cell));
+        }
+    }
+
+    /**
+     * 流式读取xlsx，只读的共享字符串表，sheet页的xml一边解析一边输出行数据，内存占用和文件大小无关
+     */
+    private static void readXlsx(InputStream input, String fileName, IResourceHandler handler) {
+        // 默认取到第一个sheet页
+        readXlsx(input, fileName, (sheetName, index) -> index == 0 ? handler : null, 1);
+    }
+
+    private static void readXlsxSheets(InputStream input, String fileName, Map<String, IResourceHandler> sheetHandlers) {
+        var missingSheets = new TreeSet<>(sheetHandlers.keySet());
+        readXlsx(input, fileName, (sheetName, index) -> {
+            var handler = sheetHandlers.get(sheetName);
+            if (handler != null) {
+                missingSheets.remove(sheetName);
+            }
+            return handler;
+        }, sheetHandlers.size());
+        if (!missingSheets.isEmpty()) {
+            throw new RunException("Excel文件[{}]中缺少sheet页{}", fileName, missingSheets);
+        }
+    }
+
+    /**
+     * 按顺序遍历sheet页，只解析有handler的sheet页，读够了maxSheets个sheet页就提前结束
+     *
+     * @return 实际读取的sheet页数量
+     */
+    private static int readXlsx(InputStream input, String fileName, BiFunction<String, Integer, IResourceHandler> handlers, int maxSheets) {
+        OPCPackage pkg = null;
+        try {
+            pkg = OPCPackage.open(input);
+            var reader = new XSSFReader(pkg);
+            var sharedStrings = new ReadOnlySharedStringsTable(pkg, false);
+            var styles = reader.getStylesTable();
+            var date1904 = isDate1904(reader);
+
+            var sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new RunException("资源[class:{}]的Excel文件没有任何sheet页", fileName);
+            }
+
+            var sheetCount = 0;
+            for (var index = 0; sheets.hasNext() && sheetCount < maxSheets; index++) {
+                try (var sheet = sheets.next()) {
+                    var handler = handlers.apply(sheets.getSheetName(), index);
+                    if (handler == null) {
+                        continue;
+                    }
+                    var sheetHandler = new ExcelSheetHandler(fileName, sharedStrings, styles, date1904, handler);
+                    parseXml(sheet, sheetHandler);
+                    sheetHandler.checkHeaders();
+                    sheetCount++;
+                }
+            }
+            return sheetCount;
+        } catch (IOException | OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new RunException(e, "静态资源[{}]异常，无法读取文件", fileName);
+        } finally {
+            // 只读，不保存任何修改
+            if (pkg != null) {
+                pkg.revert();
+            }
+        }
+    }
+
+    private static boolean isDate1904(XSSFReader reader) throws IOException, OpenXML4JException, SAXException, ParserConfigurationException {
+        var date1904 = new boolean[1];
+        try (var workbook = reader.getWorkbookData()) {
+            parseXml(workbook, new DefaultHandler() {
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                    if ("workbookPr".equals(localName)) {
+                        var value = attributes.getValue("date1904");
+                        date1904[0] = "1".equals(value) || "true".equalsIgnoreCase(value);
+                    }
+                }
+            });
+        }
+        return date1904[0];
+    }
+
+    private static void parseXml(InputStream input, ContentHandler handler) throws IOException, SAXException, ParserConfigurationException {
+        var xmlReader = XMLHelper.newXMLReader();
+        xmlReader.setContentHandler(handler);
+        xmlReader.parse(new InputSource(input));
+    }
+
+    private static boolean isXlsx(InputStream input, String fileName) {
+        try {
+            return FileMagic.valueOf(input) == FileMagic.OOXML;
+        } catch (IOException e) {
+            throw new RunException(e, "静态资源[{}]异常，无法读取文件", fileName);
         }
-        return ResourceData.valueOf(fileName, headers, rows);
     }
 
     private static List<ResourceHeader> getHeaders(Iterator<Row> iterator, String fileName) {
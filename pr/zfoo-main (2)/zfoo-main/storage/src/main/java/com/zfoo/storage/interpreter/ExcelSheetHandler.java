@@ -0,0 +1,352 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.interpreter;
+
+import com.zfoo.protocol.exception.RunException;
+import com.zfoo.protocol.util.StringUtils;
+import com.zfoo.storage.model.resource.ResourceHeader;
+import com.zfoo.storage.util.CellStyleCache;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.util.*;
+
+/**
+ * 以SAX事件的方式读取xlsx的sheet页，边读边输出行数据，不会构建整个Workbook的对象模型
+ * <p>
+ * 单元格的取值规则和CellUtils.getCellStringValue保持一致
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class ExcelSheetHandler extends DefaultHandler {
+
+    // 默认前三行分别为：字段名称，字段类型，描述
+    private static final int HEADER_ROW_SIZE = 3;
+
+    private final String fileName;
+    private final SharedStrings sharedStrings;
+    private final StylesTable styles;
+    private final boolean date1904;
+    private final IResourceHandler handler;
+
+    // 前三行的内容，key为列号
+    private final List<Map<Integer, String>> headerRows = new ArrayList<>(HEADER_ROW_SIZE);
+    private List<ResourceHeader> headers;
+    // 列号 -> headers中的位置，-1表示不需要读取的列
+    private int[] columnToHeader;
+
+    // 当前行的状态
+    private int rowCount;
+    private Map<Integer, String> headerRow;
+    private boolean rowStarted;
+    private boolean rowSkipped;
+    private int lastColumn;
+
+    // 当前单元格的状态
+    private int column;
+    private String cellType;
+    private int styleIndex;
+    private boolean cellNeeded;
+    private boolean valueOpen;
+    private boolean phoneticOpen;
+    private final StringBuilder value = new StringBuilder();
+    private final CellStyleCache styleCache = new CellStyleCache();
+
+    public ExcelSheetHandler(String fileName, SharedStrings sharedStrings, StylesTable styles, boolean date1904, IResourceHandler handler) {
+        this.fileName = fileName;
+        this.sharedStrings = sharedStrings;
+        this.styles = styles;
+        this.date1904 = date1904;
+        this.handler = handler;
+    }
+
+    /**
+     * sheet页读取完毕后检查表头是否完整
+     */
+    public void checkHeaders() {
+        if (headers == null) {
+            throw new RunException("无法获取资源[class:{}]的Excel文件的属性控制列和类型控制列", fileName);
+        }
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+        switch (localName) {
+            case "row":
+                startRow();
+                break;
+            case "c":
+                startCell(attributes);
+                break;
+            case "v":
+                valueOpen = cellNeeded;
+                break;
+            case "t":
+                // 只读取inlineStr中的文本，忽略注音
+                if (cellNeeded && "inlineStr".equals(cellType) && !phoneticOpen) {
+                    valueOpen = true;
+                }
+                break;
+            case "rPh":
+                phoneticOpen = true;
+                break;
+            default:
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        switch (localName) {
+            case "row":
+                endRow();
+                break;
+            case "c":
+                endCell();
+                break;
+            case "v":
+            case "t":
+                valueOpen = false;
+                break;
+            case "rPh":
+                phoneticOpen = false;
+                break;
+            default:
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        if (valueOpen) {
+            value.append(ch, start, length);
+        }
+    }
+
+    private void startRow() {
+        lastColumn = -1;
+        if (rowCount < HEADER_ROW_SIZE) {
+            headerRow = new HashMap<>();
+        } else {
+            rowStarted = false;
+            rowSkipped = false;
+        }
+    }
+
+    private void endRow() {
+        if (rowCount < HEADER_ROW_SIZE) {
+            headerRows.add(headerRow);
+            headerRow = null;
+            if (++rowCount == HEADER_ROW_SIZE) {
+                buildHeaders();
+            }
+            return;
+        }
+
+        rowCount++;
+        if (rowStarted) {
+            handler.endRow();
+        }
+    }
+
+    private void startCell(Attributes attributes) {
+        var ref = attributes.getValue("r");
+        column = ref == null ? lastColumn + 1 : columnIndex(ref);
+        lastColumn = column;
+        cellType = attributes.getValue("t");
+        var style = attributes.getValue("s");
+        styleIndex = style == null ? 0 : Integer.parseInt(style);
+        value.setLength(0);
+
+        if (rowCount < HEADER_ROW_SIZE) {
+            cellNeeded = true;
+        } else if (rowSkipped) {
+            cellNeeded = false;
+        } else if (!rowStarted) {
+            // 还没有读到id列
+            cellNeeded = column == 0;
+            rowSkipped = column != 0;
+        } else {
+            cellNeeded = headerIndex() >= 0;
+        }
+    }
+
+    private void endCell() {
+        if (!cellNeeded) {
+            return;
+        }
+        cellNeeded = false;
+
+        if (rowCount < HEADER_ROW_SIZE) {
+            headerRow.put(column, cellStringValue());
+            return;
+        }
+
+        // 数字和布尔单元格直接推送带类型的值，不需要先转换为字符串
+        var typed = value.length() > 0 && (cellType == null || "n".equals(cellType) || "b".equals(cellType));
+        var content = typed ? null : cellStringValue();
+        if (!rowStarted) {
+            // 第一列为id列，id为空的行直接跳过
+            if (!typed && StringUtils.isBlank(content)) {
+                rowSkipped = true;
+                return;
+            }
+            rowStarted = true;
+            handler.startRow();
+        }
+
+        var headerIndex = headerIndex();
+        if (headerIndex < 0) {
+            return;
+        }
+        if (!typed) {
+            handler.cell(headerIndex, content);
+        } else if ("b".equals(cellType)) {
+            handler.booleanCell(headerIndex, booleanValue());
+        } else {
+            pushNumber(headerIndex, Double.parseDouble(value.toString()));
+        }
+    }
+
+    private void pushNumber(int headerIndex, double number) {
+        var flags = styleFlags();
+        if ((flags & CellStyleCache.DATE) != 0 && DateUtil.isValidExcelDate(number)) {
+            handler.dateCell(headerIndex, DateUtil.getJavaDate(number, date1904));
+            return;
+        }
+        var integral = (flags & CellStyleCache.INTEGRAL) != 0 && (long) number == number;
+        handler.numberCell(headerIndex, number, integral);
+    }
+
+    private int headerIndex() {
+        return column < columnToHeader.length ? columnToHeader[column] : -1;
+    }
+
+    private void buildHeaders() {
+        var fieldRow = headerRows.get(0);
+        var typeRow = headerRows.get(1);
+        var lastCellNum = fieldRow.keySet().stream().mapToInt(it -> it + 1).max().orElse(0);
+
+        var headerList = new ArrayList<ResourceHeader>();
+        var cellFieldMap = new HashMap<String, Integer>();
+        columnToHeader = new int[lastCellNum];
+        Arrays.fill(columnToHeader, -1);
+        for (var i = 0; i < lastCellNum; i++) {
+            var fieldName = fieldRow.get(i);
+            if (StringUtils.isEmpty(fieldName)) {
+                continue;
+            }
+            var typeName = typeRow.get(i);
+            if (StringUtils.isEmpty(typeName)) {
+                continue;
+            }
+            var previousValue = cellFieldMap.put(fieldName, i);
+            if (Objects.nonNull(previousValue)) {
+                throw new RunException("资源[class:{}]的Excel文件出现重复的属性控制列[field:{}]", fileName, fieldName);
+            }
+            columnToHeader[i] = headerList.size();
+            headerList.add(ResourceHeader.valueOf(fieldName, typeName, i));
+        }
+        headers = headerList;
+        headerRows.clear();
+        handler.header(headers);
+
+        // 不需要的列直接跳过，不会读取单元格的内容
+        var projection = handler.projection();
+        if (projection != null) {
+            for (var i = 0; i < headers.size(); i++) {
+                if (!projection[i]) {
+                    columnToHeader[headers.get(i).getIndex()] = -1;
+                }
+            }
+        }
+    }
+
+    /**
+     * 和CellUtils.getCellStringValue的规则保持一致
+     */
+    private String cellStringValue() {
+        var content = value.toString();
+        if (cellType == null || "n".equals(cellType)) {
+            if (content.isEmpty()) {
+                return StringUtils.EMPTY;
+            }
+            return numericStringValue(Double.parseDouble(content));
+        }
+        switch (cellType) {
+            case "s":
+                if (content.isEmpty()) {
+                    return StringUtils.EMPTY;
+                }
+                return sharedStrings.getItemAt(Integer.parseInt(content.trim())).getString().trim();
+            case "b":
+                return String.valueOf(booleanValue());
+            default:
+                // inlineStr，str（公式的字符串结果），e（错误）
+                return content.trim();
+        }
+    }
+
+    private boolean booleanValue() {
+        return "1".contentEquals(value) || "true".equalsIgnoreCase(value.toString());
+    }
+
+    private String numericStringValue(double value) {
+        var flags = styleFlags();
+        // 判断是否为日期
+        if ((flags & CellStyleCache.DATE) != 0 && DateUtil.isValidExcelDate(value)) {
+            return DateUtil.getJavaDate(value, date1904).toString().trim();
+        }
+
+        // 普通数字
+        if ((flags & CellStyleCache.INTEGRAL) != 0) {
+            var longValue = (long) value;
+            if (longValue == value) {
+                return Long.toString(longValue);
+            }
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * 当前单元格样式的数字格式分类，每个样式只判断一次
+     */
+    private int styleFlags() {
+        if (styles == null || styles.getNumCellStyles() <= 0) {
+            return 0;
+        }
+        var flags = styleCache.flags(styleIndex);
+        if (flags < 0) {
+            flags = styleCache.put(styleIndex, styles.getStyleAt(styleIndex));
+        }
+        return flags;
+    }
+
+    /**
+     * 将A1格式的单元格引用转换为从0开始的列号
+     */
+    private static int columnIndex(String ref) {
+        var index = 0;
+        for (var i = 0; i < ref.length(); i++) {
+            var c = ref.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            index = index * 26 + (c - 'A' + 1);
+        }
+        return index - 1;
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.interpreter;
+
+import com.zfoo.storage.model.resource.ResourceHeader;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 配置表的读取回调，Excel，csv，json的reader读到一行就推送一行，不会在内存中保存整张表的字符串
+ * <p>
+ * 调用顺序：header -> (startRow -> cell* -> endRow)*
+ * <p>
+ * Excel的数字，布尔，日期单元格通过带类型的回调推送，默认实现转换为和CellUtils.getCellStringValue一样的字符串
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public interface IResourceHandler {
+
+    /**
+     * 读取完配置表的表头
+     */
+    void header(List<ResourceHeader> headers);
+
+    /**
+     * 在header之后调用，返回需要读取的列，下标为列在headers中的位置；reader对不需要的列不会生成字符串，也不会回调
+     *
+     * @return null表示需要读取所有的列
+     */
+    default boolean[] projection() {
+        return null;
+    }
+
+    void startRow();
+
+    /**
+     * 读取到一个单元格，没有内容的单元格可能不会回调
+     *
+     * @param column  单元格所在列在headers中的位置
+     * @param content 单元格的内容，json中的null为null；没有回调的字符串单元格当作空字符串
+     */
+    void cell(int column, String content);
+
+    /**
+     * 读取到一个数字单元格
+     *
+     * @param integral 单元格的格式中没有小数部分，并且值为整数
+     */
+    default void numberCell(int column, double value, boolean integral) {
+        cell(column, integral ? Long.toString((long) value) : Double.toString(value));
+    }
+
+    default void booleanCell(int column, boolean value) {
+        cell(column, String.valueOf(value));
+    }
+
+    default void dateCell(int column, Date value) {
+        cell(column, value.toString().trim());
+    }
+
+    void endRow();
+
+}
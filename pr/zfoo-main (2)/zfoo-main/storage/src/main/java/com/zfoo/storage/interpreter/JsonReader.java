@@ -12,13 +12,21 @@
 
 package com.zfoo.storage.interpreter;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.zfoo.protocol.exception.RunException;
 import com.zfoo.protocol.util.IOUtils;
 import com.zfoo.protocol.util.JsonUtils;
 import com.zfoo.protocol.util.StringUtils;
 import com.zfoo.storage.model.resource.ResourceData;
+import com.zfoo.storage.model.resource.ResourceHeader;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * @author godotg
@@ -26,6 +34,8 @@ import java.io.InputStream;
  */
 public abstract class JsonReader {
 
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
     public static ResourceData readResourceDataFromCSV(InputStream input) {
         try {
             return JsonUtils.string2Object(StringUtils.bytesToString(IOUtils.toByteArray(input)), ResourceData.class);
@@ -34,4 +44,118 @@ public abstract class JsonReader {
         }
     }
 
+    /**
+     * 使用jackson的流式解析，直接从InputStream中一行一行的读取rows，不会把整个文件读到内存中
+     */
+    public static void read(InputStream input, String fileName, IResourceHandler handler) {
+        try (var parser = JSON_FACTORY.createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new RunException("资源[class:{}]的json文件格式不正确，根节点必须是对象", fileName);
+            }
+
+            List<ResourceHeader> headers = null;
+            boolean[] projection = null;
+            // json对象的属性没有顺序，如果rows出现在headers之前，只能先缓存rows
+            List<List<String>> pendingRows = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var fieldName = parser.getCurrentName();
+                parser.nextToken();
+                if ("headers".equals(fieldName)) {
+                    headers = readHeaders(parser, fileName);
+                    handler.header(headers);
+                    projection = handler.projection();
+                    if (pendingRows != null) {
+                        for (var row : pendingRows) {
+                            pushRow(row, handler);
+                        }
+                        pendingRows = null;
+                    }
+                } else if ("rows".equals(fieldName)) {
+                    if (headers == null) {
+                        var rowHolder = new ArrayList<List<String>>();
+                        readRows(parser, fileName, null, rowHolder::add);
+                        pendingRows = rowHolder;
+                    } else {
+                        readRows(parser, fileName, projection, it -> pushRow(it, handler));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            if (headers == null) {
+                throw new RunException("无法获取资源[class:{}]的json文件的属性控制列", fileName);
+            }
+        } catch (IOException e) {
+            throw new RunException(e, "静态资源[{}]异常，无法读取文件", fileName);
+        }
+    }
+
+    private static List<ResourceHeader> readHeaders(JsonParser parser, String fileName) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new RunException("资源[class:{}]的json文件的headers必须是数组", fileName);
+        }
+        var headers = new ArrayList<ResourceHeader>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                throw new RunException("资源[class:{}]的json文件的header必须是对象", fileName);
+            }
+            var header = new ResourceHeader();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var fieldName = parser.getCurrentName();
+                parser.nextToken();
+                switch (fieldName) {
+                    case "name":
+                        header.setName(parser.getValueAsString());
+                        break;
+                    case "type":
+                        header.setType(parser.getValueAsString());
+                        break;
+                    case "index":
+                        header.setIndex(parser.getValueAsInt());
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            headers.add(header);
+        }
+        return headers;
+    }
+
+    /**
+     * @param projection 需要读取的列，不需要的列不会生成字符串；null表示读取所有的列
+     */
+    private static void readRows(JsonParser parser, String fileName, boolean[] projection, Consumer<List<String>> consumer) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new RunException("资源[class:{}]的json文件的rows必须是数组", fileName);
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() != JsonToken.START_ARRAY) {
+                throw new RunException("资源[class:{}]的json文件的row必须是数组", fileName);
+            }
+            var row = new ArrayList<String>();
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                var column = row.size();
+                if (token == JsonToken.VALUE_NULL || (token.isScalarValue() && projection != null && column < projection.length && !projection[column])) {
+                    row.add(null);
+                } else if (token.isScalarValue()) {
+                    row.add(parser.getText());
+                } else {
+                    throw new RunException("资源[class:{}]的json文件的单元格只能是字符串，第[{}]列不是", fileName, row.size() + 1);
+                }
+            }
+            consumer.accept(row);
+        }
+    }
+
+    private static void pushRow(List<String> row, IResourceHandler handler) {
+        handler.startRow();
+        for (var i = 0; i < row.size(); i++) {
+            handler.cell(i, row.get(i));
+        }
+        handler.endRow();
+    }
+
 }
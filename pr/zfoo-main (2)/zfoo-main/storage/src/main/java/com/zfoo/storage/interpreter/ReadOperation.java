@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.interpreter;
+
+import com.zfoo.storage.util.StringPool;
+
+/**
+ * 读取配置表时的可选参数
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class ReadOperation {
+
+    public static final float DEFAULT_DENSE_FILL_FACTOR = 0.5F;
+
+    // 大于0的时候，大表的行按这个数量切分成块，在ForkJoinPool中并发转换；0表示在读取的线程中逐行转换
+    private int chunkSize;
+
+    // 字符串常量池，多张表共用同一个池子可以在表之间去重；为null时每张表单独使用一个池子
+    private StringPool stringPool;
+
+    // int主键的填充率不小于这个值的时候使用数组保存，不在(0, 1]之间则不使用数组
+    private float denseFillFactor = DEFAULT_DENSE_FILL_FACTOR;
+
+    public static ReadOperation valueOf(int chunkSize) {
+        var operation = new ReadOperation();
+        operation.chunkSize = chunkSize;
+        return operation;
+    }
+
+    public static ReadOperation valueOf(int chunkSize, StringPool stringPool) {
+        var operation = valueOf(chunkSize);
+        operation.stringPool = stringPool;
+        return operation;
+    }
+
+    public static ReadOperation valueOf(int chunkSize, StringPool stringPool, float denseFillFactor) {
+        var operation = valueOf(chunkSize, stringPool);
+        operation.denseFillFactor = denseFillFactor;
+        return operation;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public StringPool getStringPool() {
+        return stringPool;
+    }
+
+    public void setStringPool(StringPool stringPool) {
+        this.stringPool = stringPool;
+    }
+
+    public float getDenseFillFactor() {
+        return denseFillFactor;
+    }
+
+    public void setDenseFillFactor(float denseFillFactor) {
+        this.denseFillFactor = denseFillFactor;
+    }
+}
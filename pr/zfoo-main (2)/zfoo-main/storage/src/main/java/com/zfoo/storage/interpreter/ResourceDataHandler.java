@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.interpreter;
+
+import com.zfoo.protocol.util.StringUtils;
+import com.zfoo.storage.model.resource.ResourceData;
+import com.zfoo.storage.model.resource.ResourceHeader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 把所有的行收集成完整的ResourceData，只给导出工具使用，加载配置表不要使用
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class ResourceDataHandler implements IResourceHandler {
+
+    private final String name;
+    private List<ResourceHeader> headers;
+    private final List<List<String>> rows = new ArrayList<>();
+    private String[] columns;
+
+    public ResourceDataHandler(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public void header(List<ResourceHeader> headers) {
+        this.headers = headers;
+    }
+
+    @Override
+    public void startRow() {
+        columns = new String[headers.size()];
+        Arrays.fill(columns, StringUtils.EMPTY);
+    }
+
+    @Override
+    public void cell(int column, String content) {
+        if (column < columns.length) {
+            columns[column] = content;
+        }
+    }
+
+    @Override
+    public void endRow() {
+        rows.add(Arrays.asList(columns));
+        columns = null;
+    }
+
+    public ResourceData toResourceData() {
+        return ResourceData.valueOf(name, headers, rows);
+    }
+
+}
@@ -18,14 +18,25 @@ import com.zfoo.protocol.util.StringUtils;
 import com.zfoo.storage.model.anno.Id;
 import com.zfoo.storage.model.resource.ResourceData;
 import com.zfoo.storage.model.resource.ResourceEnum;
+import com.zfoo.storage.model.resource.ResourceHeader;
 import com.zfoo.storage.strategy.*;
-import org.springframework.context.support.ConversionServiceFactoryBean;
+import com.zfoo.storage.util.FieldAccessor;
+import com.zfoo.storage.util.ResourceAccessor;
+import com.zfoo.storage.util.StringPool;
+import org.springframework.core.convert.ConverterNotFoundException;
 import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.converter.GenericConverter;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -36,69 +47,337 @@ public class ResourceInterpreter {
 
     private static final TypeDescriptor TYPE_DESCRIPTOR = TypeDescriptor.valueOf(String.class);
 
-    private static final ConversionServiceFactoryBean conversionServiceFactoryBean = new ConversionServiceFactoryBean();
-
-    static {
-        var converters = new HashSet<>();
-        converters.add(new JsonToArrayConverter());
-        converters.add(new JsonToListConverter());
-        converters.add(new JsonToMapConverter());
-        converters.add(new JsonToObjectConverter());
-        converters.add(new StringToClassConverter());
-        converters.add(new StringToDateConverter());
-        converters.add(new StringToMapConverter());
-        conversionServiceFactoryBean.setConverters(converters);
-        conversionServiceFactoryBean.afterPropertiesSet();
-    }
+    static final StorageConversionService conversionService = new StorageConversionService();
 
     public static <T> List<T> read(InputStream inputStream, Class<T> clazz, String suffix) throws IOException {
-        ResourceData resource = null;
+        var result = new ArrayList<T>();
+        read(inputStream, clazz, suffix, result::add);
+        return result;
+    }
+
+    public static <T> void read(InputStream inputStream, Class<T> clazz, String suffix, Consumer<T> consumer) {
+        read(inputStream, clazz, suffix, consumer, new ReadOperation());
+    }
+
+    /**
+     * 边读边转换，每读到一行就直接转换为对象交给consumer，行的字符串随即就可以被回收
+     * <p>
+     * consumer只会在调用read的线程中按照配置表中行的顺序被调用
+     */
+    public static <T> void read(InputStream inputStream, Class<T> clazz, String suffix, Consumer<T> consumer, ReadOperation operation) {
+        var stringPool = operation.getStringPool() == null ? new StringPool() : operation.getStringPool();
         var resourceEnum = ResourceEnum.getResourceEnumByType(suffix);
+        if (resourceEnum == ResourceEnum.BINARY) {
+            // 二进制快照中的值已经是属性的类型，直接读取
+            BinaryReader.read(inputStream, clazz, consumer, stringPool);
+            return;
+        }
+
+        var handler = new ObjectHandler<>(clazz, consumer, operation.getChunkSize(), stringPool);
         if (resourceEnum == ResourceEnum.JSON) {
-            resource = JsonReader.readResourceDataFromCSV(inputStream);
+            JsonReader.read(inputStream, clazz.getSimpleName(), handler);
         } else if (resourceEnum == ResourceEnum.EXCEL_XLS || resourceEnum == ResourceEnum.EXCEL_XLSX) {
-            resource = ExcelReader.readResourceDataFromExcel(inputStream, clazz.getSimpleName());
+            ExcelReader.read(inputStream, clazz.getSimpleName(), handler);
         } else if (resourceEnum == ResourceEnum.CSV) {
-            resource = CsvReader.readResourceDataFromCSV(inputStream, clazz.getSimpleName());
+            CsvReader.read(inputStream, clazz.getSimpleName(), handler);
         } else {
             throw new RunException("不支持文件[{}]的配置类型[{}]", clazz.getSimpleName(), suffix);
         }
+        handler.finish();
+    }
+
+    /**
+     * 多个资源类对应同一个Excel文件的不同sheet页，文件只打开一次，所有的sheet页在一次遍历中读取
+     *
+     * @param sheetClasses sheet页的名称 -> 资源类
+     * @param consumers    资源类 -> 接收转换出的每一行数据
+     */
+    public static void readSheets(InputStream inputStream, String fileName, Map<String, Class<?>> sheetClasses, Function<Class<?>, Consumer<?>> consumers, ReadOperation operation) {
+        var stringPool = operation.getStringPool() == null ? new StringPool() : operation.getStringPool();
+        var sheetHandlers = new LinkedHashMap<String, IResourceHandler>();
+        var objectHandlers = new ArrayList<ObjectHandler<?>>();
+        for (var entry : sheetClasses.entrySet()) {
+            var clazz = (Class<Object>) entry.getValue();
+            var handler = new ObjectHandler<>(clazz, (Consumer<Object>) consumers.apply(clazz), operation.getChunkSize(), stringPool);
+            sheetHandlers.put(entry.getKey(), handler);
+            objectHandlers.add(handler);
+        }
+        ExcelReader.readSheets(inputStream, fileName, sheetHandlers);
+        objectHandlers.forEach(it -> it.finish());
+    }
 
-        var result = new ArrayList<T>();
-        //获取所有字段
-        var cellFieldMap = getFieldMap(resource, clazz);
-        var fieldInfos = getFieldInfos(cellFieldMap, clazz);
+    /**
+     * 把reader推送过来的单元格直接注入到对象中
+     * <p>
+     * 并发模式下，行先按chunkSize切块，每一块在ForkJoinPool中转换为对象，再按原来的行顺序交给consumer；
+     * 不满一块的小表仍然在当前线程中转换；正在转换的块最多MAX_PENDING_CHUNKS个，超过之后等待最早的块，转换跟不上解析的时候不会缓存整张表的字符串
+     */
+    private static class ObjectHandler<T> implements IResourceHandler {
+        private static final int MAX_PENDING_CHUNKS = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 2);
+
+        // json中值为null的单元格，和没有读到的单元格区分开，使用引用比较
+        private static final String NULL_CONTENT = new String();
 
-        var iterator = resource.getRows().iterator();
-        // 从ROW_SERVER这行开始读取数据
-        while (iterator.hasNext()) {
-            var columns = iterator.next();
-            var instance = ReflectionUtils.newInstance(clazz);
+        private final Class<T> clazz;
+        private final ResourceAccessor<T> accessor;
+        private final Consumer<T> consumer;
+        private final boolean parallel;
+        private final int chunkSize;
+        private final StringPool stringPool;
 
+        // headers中的位置 -> 需要注入的属性，null表示代码中没有对应的属性
+        private FieldInfo[] columnFields;
+        private List<FieldInfo> fieldInfos;
+        private boolean[] injected;
+        private T instance;
+
+        // 并发模式下缓存的行，以及已经提交还没有合并的块
+        private String[] row;
+        private List<String[]> chunk;
+        private final Deque<Future<List<T>>> chunkFutures = new ArrayDeque<>();
+
+        public ObjectHandler(Class<T> clazz, Consumer<T> consumer, int chunkSize, StringPool stringPool) {
+            this.clazz = clazz;
+            this.accessor = ResourceAccessor.valueOf(clazz);
+            this.consumer = consumer;
+            this.parallel = chunkSize > 0;
+            this.chunkSize = chunkSize;
+            this.stringPool = stringPool;
+        }
+
+        @Override
+        public void header(List<ResourceHeader> headers) {
+            //获取所有字段
+            var cellFieldMap = getFieldMap(headers, clazz);
+            fieldInfos = getFieldInfos(cellFieldMap, clazz);
+            columnFields = new FieldInfo[headers.size()];
             for (var fieldInfo : fieldInfos) {
-                var content = columns.get(fieldInfo.index);
-                if (StringUtils.isNotEmpty(content) || fieldInfo.field.getType() == String.class) {
-                    inject(instance, fieldInfo.field, content);
+                columnFields[fieldInfo.index] = fieldInfo;
+            }
+            injected = new boolean[headers.size()];
+            if (parallel) {
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+
+        @Override
+        public boolean[] projection() {
+            // 只读取资源类中有对应属性的列，策划的备注列，客户端专用的列都不需要读取
+            var projection = new boolean[columnFields.length];
+            for (var i = 0; i < columnFields.length; i++) {
+                projection[i] = columnFields[i] != null;
+            }
+            return projection;
+        }
+
+        @Override
+        public void startRow() {
+            if (parallel) {
+                row = new String[columnFields.length];
+                return;
+            }
+            instance = accessor.newInstance();
+            Arrays.fill(injected, false);
+        }
+
+        @Override
+        public void cell(int column, String content) {
+            var fieldInfo = columnFieldInfo(column);
+            if (fieldInfo == null) {
+                return;
+            }
+            if (parallel) {
+                row[column] = content == null ? NULL_CONTENT : content;
+                return;
+            }
+            // json中的null和以前一样，字符串属性注入null，不会当作没有读到的单元格注入空字符串
+            if (content != null && (StringUtils.isNotEmpty(content) || fieldInfo.field.getType() == String.class)) {
+                inject(instance, fieldInfo, content, stringPool);
+            }
+            injected[column] = true;
+        }
+
+        @Override
+        public void numberCell(int column, double value, boolean integral) {
+            var fieldInfo = columnFieldInfo(column);
+            if (fieldInfo == null) {
+                return;
+            }
+            if (!isTypedCell(fieldInfo)) {
+                IResourceHandler.super.numberCell(column, value, integral);
+                return;
+            }
+            try {
+                fieldInfo.codec.injectNumber(instance, value, integral);
+            } catch (Exception e) {
+                throw new RunException(e, "无法将Excel资源[class:{}]中的[content:{}]转换为属性[field:{}]", clazz.getSimpleName(), value, fieldInfo.field.getName());
+            }
+            injected[column] = true;
+        }
+
+        @Override
+        public void booleanCell(int column, boolean value) {
+            var fieldInfo = columnFieldInfo(column);
+            if (fieldInfo == null) {
+                return;
+            }
+            if (!isTypedCell(fieldInfo)) {
+                IResourceHandler.super.booleanCell(column, value);
+                return;
+            }
+            try {
+                fieldInfo.codec.injectBoolean(instance, value);
+            } catch (Exception e) {
+                throw new RunException(e, "无法将Excel资源[class:{}]中的[content:{}]转换为属性[field:{}]", clazz.getSimpleName(), value, fieldInfo.field.getName());
+            }
+            injected[column] = true;
+        }
+
+        @Override
+        public void dateCell(int column, Date value) {
+            var fieldInfo = columnFieldInfo(column);
+            if (fieldInfo == null) {
+                return;
+            }
+            if (!isTypedCell(fieldInfo)) {
+                IResourceHandler.super.dateCell(column, value);
+                return;
+            }
+            try {
+                fieldInfo.codec.injectDate(instance, value);
+            } catch (Exception e) {
+                throw new RunException(e, "无法将Excel资源[class:{}]中的[content:{}]转换为属性[field:{}]", clazz.getSimpleName(), value, fieldInfo.field.getName());
+            }
+            injected[column] = true;
+        }
+
+        /**
+         * 数字，布尔，日期单元格是否直接注入；字符串属性转换为字符串之后和其它单元格一样经过常量池
+         */
+        private boolean isTypedCell(FieldInfo fieldInfo) {
+            return !parallel && fieldInfo.codec != null && fieldInfo.field.getType() != String.class;
+        }
+
+        /**
+         * 代码中没有对应的属性时返回null
+         */
+        private FieldInfo columnFieldInfo(int column) {
+            return column < columnFields.length ? columnFields[column] : null;
+        }
+
+        @Override
+        public void endRow() {
+            if (parallel) {
+                chunk.add(row);
+                row = null;
+                if (chunk.size() >= chunkSize) {
+                    submitChunk();
+                }
+                return;
+            }
+
+            // 没有读到的单元格当作空字符串处理
+            for (var fieldInfo : fieldInfos) {
+                if (!injected[fieldInfo.index] && fieldInfo.field.getType() == String.class) {
+                    inject(instance, fieldInfo, StringUtils.EMPTY, stringPool);
                 }
             }
-            result.add(instance);
+            var result = instance;
+            instance = null;
+            consumer.accept(result);
+        }
+
+        public void finish() {
+            if (!parallel || chunk == null) {
+                return;
+            }
+            if (chunkFutures.isEmpty()) {
+                // 小表直接在当前线程转换
+                convertChunk(chunk).forEach(consumer);
+                chunk = null;
+                return;
+            }
+            if (!chunk.isEmpty()) {
+                submitChunk();
+            }
+            chunk = null;
+            while (!chunkFutures.isEmpty()) {
+                mergeChunk();
+            }
+        }
+
+        private void submitChunk() {
+            var rows = chunk;
+            chunk = new ArrayList<>(chunkSize);
+            chunkFutures.addLast(CompletableFuture.supplyAsync(() -> convertChunk(rows), ForkJoinPool.commonPool()));
+            // 已经转换完成的块尽早按顺序合并，释放行的字符串；正在转换的块太多的时候阻塞等待最早的块
+            while (!chunkFutures.isEmpty() && (chunkFutures.size() > MAX_PENDING_CHUNKS || chunkFutures.peekFirst().isDone())) {
+                mergeChunk();
+            }
+        }
+
+        private void mergeChunk() {
+            var future = chunkFutures.pollFirst();
+            List<T> objects;
+            try {
+                objects = future.get();
+            } catch (ExecutionException e) {
+                chunkFutures.forEach(it -> it.cancel(false));
+                chunkFutures.clear();
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RunException(e.getCause(), "资源[class:{}]并发转换失败", clazz.getSimpleName());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RunException(e, "资源[class:{}]并发转换被中断", clazz.getSimpleName());
+            }
+            objects.forEach(consumer);
+        }
+
+        private List<T> convertChunk(List<String[]> rows) {
+            var objects = new ArrayList<T>(rows.size());
+            for (var columns : rows) {
+                var object = accessor.newInstance();
+                for (var fieldInfo : fieldInfos) {
+                    var content = columns[fieldInfo.index];
+                    if (content == NULL_CONTENT) {
+                        continue;
+                    }
+                    if (content == null) {
+                        // 没有读到的单元格当作空字符串处理
+                        if (fieldInfo.field.getType() == String.class) {
+                            inject(object, fieldInfo, StringUtils.EMPTY, stringPool);
+                        }
+                    } else if (StringUtils.isNotEmpty(content) || fieldInfo.field.getType() == String.class) {
+                        inject(object, fieldInfo, content, stringPool);
+                    }
+                }
+                objects.add(object);
+            }
+            return objects;
         }
-        return result;
     }
 
-    private static void inject(Object instance, Field field, String content) {
+    private static void inject(Object instance, FieldInfo fieldInfo, String content, StringPool stringPool) {
         try {
-            var targetType = new TypeDescriptor(field);
-            var value = conversionServiceFactoryBean.getObject().convert(content, TYPE_DESCRIPTOR, targetType);
-            ReflectionUtils.makeAccessible(field);
-            ReflectionUtils.setField(field, instance, value);
+            if (fieldInfo.codec != null) {
+                fieldInfo.codec.inject(instance, fieldInfo.field.getType() == String.class ? stringPool.intern(content) : content);
+                return;
+            }
+            if (fieldInfo.converter == null) {
+                throw new ConverterNotFoundException(TYPE_DESCRIPTOR, fieldInfo.typeDescriptor);
+            }
+            var value = fieldInfo.converter.convert(content, TYPE_DESCRIPTOR, fieldInfo.typeDescriptor);
+            // 集合中的字符串也使用常量池中的实例
+            fieldInfo.accessor.set(instance, stringPool.internValue(value));
         } catch (Exception e) {
-            throw new RunException(e, "无法将Excel资源[class:{}]中的[content:{}]转换为属性[field:{}]", instance.getClass().getSimpleName(), content, field.getName());
+            throw new RunException(e, "无法将Excel资源[class:{}]中的[content:{}]转换为属性[field:{}]", instance.getClass().getSimpleName(), content, fieldInfo.field.getName());
         }
     }
 
     // 只读取代码里写的字段
-    private static Collection<FieldInfo> getFieldInfos(Map<String, Integer> fieldMap, Class<?> clazz) {
+    private static List<FieldInfo> getFieldInfos(Map<String, Integer> fieldMap, Class<?> clazz) {
         var fieldList = ReflectionUtils.notStaticAndTransientFields(clazz);
         for (var field : fieldList) {
             if (!fieldMap.containsKey(field.getName())) {
@@ -118,15 +397,28 @@ public class ResourceInterpreter {
     private static class FieldInfo {
         public final int index;
         public final Field field;
+        public final TypeDescriptor typeDescriptor;
+        public final FieldAccessor accessor;
+        // 读取表头时就确定好的转换器，为null时在注入第一个单元格时报错，和之前的行为保持一致
+        public final GenericConverter converter;
+        // 标量属性直接解析，不是标量属性时为null
+        public final ScalarCodec codec;
 
         public FieldInfo(int index, Field field) {
             this.index = index;
             this.field = field;
+            this.typeDescriptor = new TypeDescriptor(field);
+            this.accessor = FieldAccessor.valueOf(field);
+            this.converter = conversionService.findConverter(TYPE_DESCRIPTOR, typeDescriptor);
+            this.codec = ScalarCodec.valueOf(field, accessor, TYPE_DESCRIPTOR, typeDescriptor, converter);
         }
     }
 
     public static Map<String, Integer> getFieldMap(ResourceData resource, Class<?> clazz) {
-        var header = resource.getHeaders();
+        return getFieldMap(resource.getHeaders(), clazz);
+    }
+
+    public static Map<String, Integer> getFieldMap(List<ResourceHeader> header, Class<?> clazz) {
         if (header == null) {
             throw new RunException("无法获取资源[class:{}]的Excel文件的属性控制列", clazz.getSimpleName());
         }
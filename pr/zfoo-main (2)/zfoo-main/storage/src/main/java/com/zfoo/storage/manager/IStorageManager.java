@@ -16,6 +16,8 @@ package com.zfoo.storage.manager;
 import com.zfoo.storage.model.config.StorageConfig;
 import com.zfoo.storage.model.vo.Storage;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -39,11 +41,25 @@ public interface IStorageManager {
      */
     void initAfter();
 
+    /**
+     * 程序关闭，停止监听配置文件
+     */
+    void shutdown();
+
     Storage<?, ?> getStorage(Class<?> clazz);
 
     Map<Class<?>, Storage<?, ?>> storageMap();
 
     void updateStorage(Class<?> clazz, Storage<?, ?> storage);
 
+    /**
+     * 热更新配置表，新的数据全部加载成功之后才原子的替换，读取的一方不需要加锁
+     */
+    void reloadStorages(Collection<Class<?>> clazzList);
+
+    default void reloadStorage(Class<?> clazz) {
+        reloadStorages(List.of(clazz));
+    }
+
     StorageConfig storageConfig();
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.manager;
+
+import com.zfoo.protocol.exception.RunException;
+import com.zfoo.protocol.util.FileUtils;
+import com.zfoo.protocol.util.ClassUtils;
+import com.zfoo.protocol.util.ReflectionUtils;
+import com.zfoo.protocol.util.StringUtils;
+import com.zfoo.storage.interpreter.BinaryFormat;
+import com.zfoo.storage.interpreter.BinaryWriter;
+import com.zfoo.storage.model.resource.ResourceEnum;
+import com.zfoo.storage.model.vo.IdDef;
+import com.zfoo.storage.model.vo.IndexDef;
+import com.zfoo.storage.model.vo.Storage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * 配置表的本地转换缓存，缓存的文件是BinaryFormat格式的二进制快照
+ * <p>
+ * 缓存的key由配置文件内容的hash和资源类结构的hash组成，文件内容和资源类都没有改变的时候直接读取快照，不需要再解析Excel和csv
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class StorageCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageCache.class);
+
+    private final File cacheDir;
+
+    public StorageCache(String cacheDir) {
+        this.cacheDir = new File(cacheDir);
+    }
+
+    /**
+     * 配置表对应的缓存文件，文件名为：资源类的全限定名.内容和结构的hash.bin，不同包中同名的资源类不会互相覆盖
+     */
+    public File cacheFile(Class<?> clazz, byte[] content) {
+        var digest = sha256();
+        digest.update(content);
+        digest.update(schema(clazz).getBytes(StandardCharsets.UTF_8));
+        var hash = toHex(digest.digest());
+        return new File(cacheDir, StringUtils.format("{}.{}.{}", clazz.getName(), hash, ResourceEnum.BINARY.getType()));
+    }
+
+    /**
+     * 写入缓存之后再删除这个资源类以前的缓存，写入失败的时候旧的缓存还在；缓存只是为了加速启动，写入失败不影响加载
+     */
+    public void write(Class<?> clazz, Storage<?, ?> storage, File cacheFile) {
+        try {
+            cacheDir.mkdirs();
+            var prefix = clazz.getName() + StringUtils.PERIOD;
+
+            // 先写临时文件再重命名，避免启动中断留下不完整的缓存；临时文件的前缀至少需要3个字符
+            var tempFile = File.createTempFile(prefix + "tmp", ".tmp", cacheDir);
+            try (var outputStream = new FileOutputStream(tempFile)) {
+                BinaryWriter.write(clazz, storage, outputStream);
+            }
+            Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            // 只匹配“资源类名.hash.bin”，不会删除类名以这个资源类名开头的其它资源类的缓存
+            var oldFilePattern = Pattern.compile(Pattern.quote(prefix) + "[0-9a-f]{64}\\." + ResourceEnum.BINARY.getType());
+            var oldFiles = cacheDir.listFiles((dir, name) -> oldFilePattern.matcher(name).matches() && !name.equals(cacheFile.getName()));
+            if (oldFiles != null) {
+                for (var oldFile : oldFiles) {
+                    FileUtils.deleteFile(oldFile);
+                }
+            }
+        } catch (Throwable t) {
+            logger.warn("配置表[{}]写入缓存[{}]失败", clazz.getSimpleName(), cacheFile.getAbsolutePath(), t);
+        }
+    }
+
+    /**
+     * 资源类的结构描述，属性，主键，索引或者快照格式的版本改变了都会让缓存失效
+     * <p>
+     * 属性中引用的类（比如json列对应的对象）的属性也会改变反序列化的结果，所以包含资源类引用的所有类的属性
+     */
+    static String schema(Class<?> clazz) {
+        var builder = new StringBuilder();
+        builder.append(clazz.getName()).append(':').append(BinaryFormat.VERSION);
+        var relevantClasses = new TreeMap<String, Class<?>>();
+        relevantClasses.put(clazz.getName(), clazz);
+        ClassUtils.relevantClass(clazz).forEach(it -> relevantClasses.put(it.getName(), it));
+        for (var relevantClass : relevantClasses.values()) {
+            builder.append(';').append(relevantClass.getName());
+            for (var field : ReflectionUtils.notStaticAndTransientFields(relevantClass)) {
+                builder.append(';').append(field.getName()).append(':').append(field.getGenericType().getTypeName());
+            }
+        }
+        builder.append(';').append(IdDef.valueOf(clazz).getField().getName());
+        for (var indexDef : new TreeMap<>(IndexDef.createResourceIndexes(clazz)).values()) {
+            builder.append(';').append(indexDef.getField().getName()).append(':').append(indexDef.isUnique());
+        }
+        return builder.toString();
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RunException(e, "当前环境不支持SHA-256");
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        var builder = new StringBuilder(bytes.length * 2);
+        for (var b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+}
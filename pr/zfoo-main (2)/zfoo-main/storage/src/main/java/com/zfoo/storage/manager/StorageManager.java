@@ -14,31 +14,48 @@
 package com.zfoo.storage.manager;
 
 import com.zfoo.protocol.collection.CollectionUtils;
-import com.zfoo.protocol.exception.ExceptionUtils;
 import com.zfoo.protocol.exception.RunException;
 import com.zfoo.protocol.util.ClassUtils;
 import com.zfoo.protocol.util.FileUtils;
+import com.zfoo.protocol.util.IOUtils;
 import com.zfoo.protocol.util.ReflectionUtils;
 import com.zfoo.protocol.util.StringUtils;
 import com.zfoo.storage.StorageContext;
+import com.zfoo.storage.interpreter.ReadOperation;
+import com.zfoo.storage.interpreter.ResourceInterpreter;
 import com.zfoo.storage.model.anno.Id;
 import com.zfoo.storage.model.anno.ResInjection;
 import com.zfoo.storage.model.config.StorageConfig;
 import com.zfoo.storage.model.resource.ResourceEnum;
 import com.zfoo.storage.model.vo.ResourceDef;
 import com.zfoo.storage.model.vo.Storage;
+import com.zfoo.storage.processor.ResourceIndexProcessor;
+import com.zfoo.storage.util.StringPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.type.ClassMetadata;
 import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
+import org.springframework.lang.Nullable;
 import org.springframework.util.ResourceUtils;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -47,6 +64,8 @@ import java.util.stream.Collectors;
  */
 public class StorageManager implements IStorageManager {
 
+    private static final Logger logger = LoggerFactory.getLogger(StorageManager.class);
+
     // ANT通配符有三种, ? :匹配任何单字符; * :匹配0或者任意数量的字符; ** :匹配0或者更多的目录
     // 1. /project/*.a	匹配项目根路径下所有在project路径下的.a文件
     // 2. /project/p?ttern	匹配项目根路径下 /project/pattern 和 /app/pXttern,但是不包括/app/pttern
@@ -58,10 +77,19 @@ public class StorageManager implements IStorageManager {
 
     private StorageConfig storageConfig;
 
+    // 配置表的转换缓存，没有配置缓存目录则为null
+    private StorageCache storageCache;
+
     /**
-     * 在当前项目被依赖注入，被使用的Storage
+     * 在当前项目被依赖注入，被使用的Storage；运行时会重新加载，所以使用线程安全的Map
      */
-    private final Map<Class<?>, Storage<?, ?>> storageMap = new HashMap<>();
+    private final Map<Class<?>, Storage<?, ?>> storageMap = new ConcurrentHashMap<>();
+
+    // 所有资源类的定义，重新加载的时候使用
+    private final Map<Class<?>, ResourceDef> resourceDefinitionMap = new ConcurrentHashMap<>();
+
+    // 监听配置文件的修改，没有开启watch则为null
+    private StorageWatcher storageWatcher;
 
     public StorageConfig getStorageConfig() {
         return storageConfig;
@@ -73,10 +101,11 @@ public class StorageManager implements IStorageManager {
 
     @Override
     public void initBefore() {
-        var resourceDefinitionMap = new HashMap<Class<?>, ResourceDef>();
+        resourceDefinitionMap.clear();
 
         // 扫描Excel的class类文件
         var clazzNameSet = scanResourceAnno(storageConfig.getScanPackages());
+        var resourceFileMap = scanResourceFiles();
 
         // 通过class类文件扫描excel文件地址
         for (var clazzName : clazzNameSet) {
@@ -87,7 +116,7 @@ public class StorageManager implements IStorageManager {
                 throw new RuntimeException(StringUtils.format("无法获取资源类[{}]", clazzName));
             }
 
-            var resourceFile = scanResourceFile(resourceClazz);
+            var resourceFile = scanResourceFile(resourceClazz, resourceFileMap);
             ResourceDef resourceDef = new ResourceDef(resourceClazz, resourceFile);
             if (resourceDefinitionMap.containsKey(resourceClazz)) {
                 throw new RuntimeException(StringUtils.format("类的资源定义[{}]已经存在[{}]", resourceClazz, resourceDef));
@@ -119,18 +148,300 @@ public class StorageManager implements IStorageManager {
             }
         }
 
-        try {
+        storageCache = StringUtils.isBlank(storageConfig.getCacheDir()) ? null : new StorageCache(storageConfig.getCacheDir());
+
+        if (storageConfig.isLazy()) {
+            // 懒加载只记录资源定义，第一次访问的时候才加载，每张表使用自己的字符串常量池，避免池子一直不能被回收
             for (var definition : resourceDefinitionMap.values()) {
-                var clazz = definition.getClazz();
-                var resource = definition.getResource();
-                var fileExtName = FileUtils.fileExtName(resource.getFilename());
-                Storage<?, ?> storage = new Storage<>();
-                storage.init(resource.getInputStream(), definition.getClazz(), fileExtName);
-                storageMap.putIfAbsent(clazz, storage);
+                var storage = new Storage<>();
+                storage.initLazy(definition.getClazz(), () -> {
+                    try {
+                        var loadedStorage = loadStorage(definition, ReadOperation.valueOf(storageConfig.getChunkSize(), new StringPool(), storageConfig.getDenseFillFactor()));
+                        applyLayout(definition.getClazz(), loadedStorage);
+                        return loadedStorage;
+                    } catch (IOException e) {
+                        throw new RunException(e, "无法懒加载静态资源[{}]", definition.getClazz().getSimpleName());
+                    }
+                });
+                storageMap.putIfAbsent(definition.getClazz(), storage);
+            }
+            return;
+        }
+
+        // 所有的配置表共用一个字符串常量池，表之间重复的字符串也只保留一个实例，加载完成后池子随即被回收
+        var operation = ReadOperation.valueOf(storageConfig.getChunkSize(), new StringPool(), storageConfig.getDenseFillFactor());
+        // 所有的配置表都加载成功之后才放入storageMap
+        var storages = storageConfig.isParallel() ? loadStoragesParallel(resourceDefinitionMap.values(), operation) : loadStorages(resourceDefinitionMap.values(), operation);
+        storages.forEach((clazz, storage) -> storageMap.putIfAbsent(clazz, storage));
+    }
+
+    private Map<Class<?>, Storage<?, ?>> loadStorages(Collection<ResourceDef> definitions, ReadOperation operation) {
+        var storages = new HashMap<Class<?>, Storage<?, ?>>();
+        try {
+            for (var group : groupDefinitions(definitions)) {
+                storages.putAll(loadGroup(group, operation));
             }
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
+        return storages;
+    }
+
+    /**
+     * 使用有界的线程池并发加载配置表，每张表的异常单独收集，最后一起抛出
+     */
+    private Map<Class<?>, Storage<?, ?>> loadStoragesParallel(Collection<ResourceDef> definitions, ReadOperation operation) {
+        var groups = groupDefinitions(definitions);
+        if (groups.size() <= 1) {
+            return loadStorages(definitions, operation);
+        }
+
+        var threads = Math.min(Runtime.getRuntime().availableProcessors(), groups.size());
+        var threadIndex = new AtomicInteger(0);
+        var executor = Executors.newFixedThreadPool(threads, runnable -> {
+            var thread = new Thread(runnable, StringUtils.format("storage-loader-{}", threadIndex.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            var futures = new HashMap<Class<?>, Future<Map<Class<?>, Storage<?, ?>>>>();
+            for (var group : groups) {
+                futures.put(group.get(0).getClazz(), executor.submit(() -> loadGroup(group, operation)));
+            }
+
+            var storages = new HashMap<Class<?>, Storage<?, ?>>();
+            var errors = new HashMap<Class<?>, Throwable>();
+            for (var entry : futures.entrySet()) {
+                try {
+                    storages.putAll(entry.getValue().get());
+                } catch (ExecutionException e) {
+                    errors.put(entry.getKey(), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RunException(e, "并发加载配置表被中断");
+                }
+            }
+
+            if (!errors.isEmpty()) {
+                var messages = errors.entrySet().stream()
+                        .map(it -> StringUtils.format("[{}:{}]", it.getKey().getSimpleName(), it.getValue().getMessage()))
+                        .collect(Collectors.joining(StringUtils.COMMA));
+                var exception = new RunException("[{}]张配置表加载失败{}", errors.size(), messages);
+                errors.values().forEach(it -> exception.addSuppressed(it));
+                throw exception;
+            }
+            return storages;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 同一个Excel文件中的多个sheet页分为一组，一起加载；其它的资源类每个单独一组
+     */
+    private List<List<ResourceDef>> groupDefinitions(Collection<ResourceDef> definitions) {
+        var groups = new ArrayList<List<ResourceDef>>();
+        var workbookGroups = new HashMap<String, List<ResourceDef>>();
+        for (var definition : definitions) {
+            if (isWorkbookSheet(definition)) {
+                workbookGroups.computeIfAbsent(definition.getKey(), it -> {
+                    var group = new ArrayList<ResourceDef>();
+                    groups.add(group);
+                    return group;
+                }).add(definition);
+            } else {
+                groups.add(List.of(definition));
+            }
+        }
+        return groups;
+    }
+
+    private Map<Class<?>, Storage<?, ?>> loadGroup(List<ResourceDef> group, ReadOperation operation) throws IOException {
+        var definition = group.get(0);
+        var storages = group.size() == 1 && !isWorkbookSheet(definition)
+                ? Map.<Class<?>, Storage<?, ?>>of(definition.getClazz(), loadStorage(definition, operation))
+                : loadWorkbook(group, operation);
+        storages.forEach((clazz, storage) -> applyLayout(clazz, storage));
+        return storages;
+    }
+
+    /**
+     * 配置了columnar的资源类在加载完成后转换为列存储，配置了perfectHash的资源类转换为完美哈希，配置了mapped的资源类不需要转换
+     */
+    private static void applyLayout(Class<?> clazz, Storage<?, ?> storage) {
+        var annotation = clazz.getAnnotation(com.zfoo.storage.model.anno.Resource.class);
+        if (annotation == null || annotation.mapped()) {
+            return;
+        }
+        if (annotation.columnar()) {
+            storage.toColumnar(annotation.cacheSize());
+        } else if (annotation.perfectHash()) {
+            storage.toPerfectHash();
+        }
+    }
+
+    private static boolean isWorkbookSheet(Class<?> clazz) {
+        var annotation = clazz.getAnnotation(com.zfoo.storage.model.anno.Resource.class);
+        return annotation != null && StringUtils.isNotBlank(annotation.workbook());
+    }
+
+    /**
+     * 配置了workbook并且找到的是Excel文件；二进制快照按照资源类单独导出，只部署了快照的时候和普通的资源类一样加载
+     */
+    private static boolean isWorkbookSheet(ResourceDef definition) {
+        return isWorkbookSheet(definition.getClazz()) && !isBinary(definition.getResource());
+    }
+
+    private static boolean isBinary(Resource resource) {
+        return ResourceEnum.getResourceEnumByType(FileUtils.fileExtName(resource.getFilename())) == ResourceEnum.BINARY;
+    }
+
+    private static String resourceFileName(Class<?> clazz) {
+        return isWorkbookSheet(clazz) ? clazz.getAnnotation(com.zfoo.storage.model.anno.Resource.class).workbook() : clazz.getSimpleName();
+    }
+
+    private static String sheetName(Class<?> clazz) {
+        var sheet = clazz.getAnnotation(com.zfoo.storage.model.anno.Resource.class).sheet();
+        return StringUtils.isBlank(sheet) ? clazz.getSimpleName() : sheet;
+    }
+
+    private Storage<?, ?> loadStorage(ResourceDef definition, ReadOperation operation) throws IOException {
+        var clazz = definition.getClazz();
+        if (isWorkbookSheet(definition)) {
+            return loadWorkbook(List.of(definition), operation).get(clazz);
+        }
+
+        var resource = definition.getResource();
+        var fileExtName = FileUtils.fileExtName(resource.getFilename());
+        var annotation = clazz.getAnnotation(com.zfoo.storage.model.anno.Resource.class);
+        Storage<?, ?> storage = new Storage<>();
+
+        if (ResourceEnum.getResourceEnumByType(fileExtName) == ResourceEnum.BINARY) {
+            // 只有文件系统中的二进制快照才能使用内存映射，其它情况还是加载到堆上
+            if (annotation != null && annotation.mapped() && resource.isFile()) {
+                storage.initMapped(resource.getFile(), clazz, annotation.cacheSize());
+            } else {
+                storage.init(resource.getInputStream(), clazz, fileExtName, operation);
+            }
+            return storage;
+        }
+
+        if (storageCache == null) {
+            storage.init(resource.getInputStream(), clazz, fileExtName, operation);
+            return storage;
+        }
+
+        // 配置文件和资源类都没有改变则直接读取缓存的二进制快照
+        var content = readContent(resource);
+        var cacheFile = storageCache.cacheFile(clazz, content);
+        var cachedStorage = loadCache(clazz, cacheFile, operation);
+        if (cachedStorage != null) {
+            return cachedStorage;
+        }
+
+        storage.init(new ByteArrayInputStream(content), clazz, fileExtName, operation);
+        return writeCache(clazz, storage, cacheFile);
+    }
+
+    /**
+     * 一个Excel文件的多个sheet页对应多个资源类，文件只打开一次；有缓存的资源类直接读取缓存，其余的sheet页一次读完
+     */
+    private Map<Class<?>, Storage<?, ?>> loadWorkbook(List<ResourceDef> group, ReadOperation operation) throws IOException {
+        var resource = group.get(0).getResource();
+        var fileName = resource.getFilename();
+        var fileExtName = FileUtils.fileExtName(fileName);
+        if (!ResourceEnum.isExcel(fileExtName)) {
+            throw new RunException("资源类[class:{}]配置了workbook，但是配置文件[{}]不是Excel文件", group.get(0).getClazz().getSimpleName(), fileName);
+        }
+
+        var storages = new HashMap<Class<?>, Storage<?, ?>>();
+        var cacheFiles = new HashMap<Class<?>, File>();
+        byte[] content = null;
+        if (storageCache != null) {
+            content = readContent(resource);
+            for (var definition : group) {
+                var clazz = definition.getClazz();
+                var cacheFile = storageCache.cacheFile(clazz, content);
+                var cachedStorage = loadCache(clazz, cacheFile, operation);
+                if (cachedStorage == null) {
+                    cacheFiles.put(clazz, cacheFile);
+                } else {
+                    storages.put(clazz, cachedStorage);
+                }
+            }
+        }
+
+        var sheetClasses = new LinkedHashMap<String, Class<?>>();
+        for (var definition : group) {
+            var clazz = definition.getClazz();
+            if (storages.containsKey(clazz)) {
+                continue;
+            }
+            var previousClazz = sheetClasses.put(sheetName(clazz), clazz);
+            if (previousClazz != null) {
+                throw new RunException("资源类[{}]和[{}]对应了Excel文件[{}]的同一个sheet页[{}]", previousClazz.getSimpleName(), clazz.getSimpleName(), fileName, sheetName(clazz));
+            }
+        }
+        if (sheetClasses.isEmpty()) {
+            return storages;
+        }
+
+        var sheetStorages = new HashMap<Class<?>, Storage<?, ?>>();
+        sheetClasses.values().forEach(it -> sheetStorages.put(it, new Storage<>()));
+        try (var inputStream = content == null ? resource.getInputStream() : new ByteArrayInputStream(content)) {
+            ResourceInterpreter.readSheets(inputStream, fileName, sheetClasses, clazz -> sheetStorages.get(clazz).prepare(clazz), operation);
+        }
+        sheetStorages.values().forEach(it -> it.afterLoad(operation));
+        for (var entry : sheetStorages.entrySet()) {
+            var clazz = entry.getKey();
+            var cacheFile = cacheFiles.get(clazz);
+            storages.put(clazz, cacheFile == null ? entry.getValue() : writeCache(clazz, entry.getValue(), cacheFile));
+        }
+        return storages;
+    }
+
+    private static byte[] readContent(Resource resource) throws IOException {
+        try (var inputStream = resource.getInputStream()) {
+            return IOUtils.toByteArray(inputStream);
+        }
+    }
+
+    /**
+     * 读取缓存的二进制快照，没有缓存或者缓存无法读取返回null
+     */
+    @Nullable
+    private Storage<?, ?> loadCache(Class<?> clazz, File cacheFile, ReadOperation operation) {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        var annotation = clazz.getAnnotation(com.zfoo.storage.model.anno.Resource.class);
+        try {
+            var storage = new Storage<>();
+            if (annotation != null && annotation.mapped()) {
+                storage.initMapped(cacheFile, clazz, annotation.cacheSize());
+            } else {
+                storage.init(FileUtils.openInputStream(cacheFile), clazz, ResourceEnum.BINARY.getType(), operation);
+            }
+            return storage;
+        } catch (Throwable t) {
+            logger.warn("配置表[{}]的缓存[{}]无法读取，重新解析配置文件", clazz.getSimpleName(), cacheFile.getAbsolutePath(), t);
+            return null;
+        }
+    }
+
+    /**
+     * 写入缓存，mapped的资源类写入成功后换成内存映射的Storage，释放堆上的数据
+     */
+    private Storage<?, ?> writeCache(Class<?> clazz, Storage<?, ?> storage, File cacheFile) {
+        storageCache.write(clazz, storage, cacheFile);
+        var annotation = clazz.getAnnotation(com.zfoo.storage.model.anno.Resource.class);
+        if (annotation != null && annotation.mapped() && cacheFile.isFile()) {
+            var mappedStorage = new Storage<>();
+            mappedStorage.initMapped(cacheFile, clazz, annotation.cacheSize());
+            return mappedStorage;
+        }
+        return storage;
     }
 
     @Override
@@ -183,7 +494,8 @@ public class StorageManager implements IStorageManager {
 
     @Override
     public void initAfter() {
-        if (storageConfig.isRecycle()) {
+        // 懒加载模式下没有被使用的配置表不会被加载，不需要回收
+        if (storageConfig.isRecycle() && !storageConfig.isLazy()) {
             storageMap.entrySet().stream()
                     .filter(it -> it.getValue().isRecycle())
                     .map(it -> it.getValue())
@@ -193,6 +505,27 @@ public class StorageManager implements IStorageManager {
                     .map(it -> it.getValue())
                     .forEach(it -> it.setRecycle(false));
         }
+
+        if (storageConfig.isWatch()) {
+            // 只监听还在使用的配置表
+            var definitions = resourceDefinitionMap.values().stream()
+                    .filter(it -> storageMap.containsKey(it.getClazz()) && !storageMap.get(it.getClazz()).isRecycle())
+                    .collect(Collectors.toList());
+            storageWatcher = new StorageWatcher(this, definitions);
+            storageWatcher.start();
+        }
+    }
+
+    /**
+     * 不能加锁，正在执行的重新加载持有StorageManager的锁，停止监听不需要等待重新加载完成
+     */
+    @Override
+    public void shutdown() {
+        var watcher = storageWatcher;
+        if (watcher != null) {
+            watcher.stop();
+            storageWatcher = null;
+        }
     }
 
     @Override
@@ -212,9 +545,50 @@ public class StorageManager implements IStorageManager {
         return storageMap;
     }
 
+    /**
+     * 已经存在的Storage直接发布新的数据，通过ResInjection注入的Storage不需要重新注入
+     */
     @Override
     public void updateStorage(Class<?> clazz, Storage<?, ?> storage) {
-        storageMap.put(clazz, storage);
+        var current = storageMap.putIfAbsent(clazz, storage);
+        if (current != null) {
+            current.publish(storage);
+        }
+    }
+
+    /**
+     * 在旁边完整的加载一份新的配置表，全部加载和校验成功之后才一个一个原子的替换，任何一张表失败都不会修改当前的数据；
+     * 同一个Excel文件中的其它sheet页也会一起重新加载，已经被回收的配置表不会重新加载
+     */
+    @Override
+    public synchronized void reloadStorages(Collection<Class<?>> clazzList) {
+        var definitions = new HashMap<Class<?>, ResourceDef>();
+        for (var clazz : clazzList) {
+            var definition = resourceDefinitionMap.get(clazz);
+            if (definition == null) {
+                throw new RunException("没有定义[{}]的Storage，无法重新加载", clazz.getCanonicalName());
+            }
+            if (isWorkbookSheet(definition)) {
+                resourceDefinitionMap.values().stream()
+                        .filter(it -> it.getKey().equals(definition.getKey()))
+                        .forEach(it -> definitions.put(it.getClazz(), it));
+            } else {
+                definitions.put(clazz, definition);
+            }
+        }
+
+        var operation = ReadOperation.valueOf(storageConfig.getChunkSize(), new StringPool(), storageConfig.getDenseFillFactor());
+        var storages = loadStorages(definitions.values(), operation);
+
+        for (var entry : storages.entrySet()) {
+            var current = storageMap.get(entry.getKey());
+            if (current == null) {
+                storageMap.put(entry.getKey(), entry.getValue());
+            } else if (!current.isRecycle()) {
+                current.publish(entry.getValue());
+            }
+        }
+        logger.info("重新加载配置表{}", storages.keySet().stream().map(Class::getSimpleName).collect(Collectors.toList()));
     }
 
     @Override
@@ -222,7 +596,75 @@ public class StorageManager implements IStorageManager {
         return getStorageConfig();
     }
 
+    /**
+     * 优先读取ResourceIndexProcessor在编译期生成的资源类索引，索引中没有任何资源类的包才扫描classpath
+     * <p>
+     * 没有使用注解处理器编译的jar包没有索引，和有索引的jar包放在一起的时候也能找到其中的资源类
+     */
     private Set<String> scanResourceAnno(String[] scanPackages) {
+        var indexedClasses = readResourceIndex(scanPackages);
+        if (indexedClasses == null) {
+            return scanResourceClasses(scanPackages);
+        }
+        var result = new HashSet<String>();
+        var unindexedPackages = new ArrayList<String>();
+        for (var scanPackage : scanPackages) {
+            var packageClasses = indexedClasses.stream().filter(it -> it.startsWith(scanPackage + StringUtils.PERIOD)).collect(Collectors.toList());
+            if (packageClasses.isEmpty()) {
+                unindexedPackages.add(scanPackage);
+            } else {
+                result.addAll(packageClasses);
+            }
+        }
+        if (!unindexedPackages.isEmpty()) {
+            result.addAll(scanResourceClasses(unindexedPackages.toArray(new String[0])));
+        }
+        return result;
+    }
+
+    @Nullable
+    private Set<String> readResourceIndex(String[] scanPackages) {
+        try {
+            var urls = org.springframework.util.ClassUtils.getDefaultClassLoader().getResources(ResourceIndexProcessor.INDEX_LOCATION);
+            if (!urls.hasMoreElements()) {
+                return null;
+            }
+            var result = new HashSet<String>();
+            while (urls.hasMoreElements()) {
+                var url = urls.nextElement();
+                try (var reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+                    reader.lines()
+                            .map(String::trim)
+                            .filter(StringUtils::isNotBlank)
+                            .filter(it -> Arrays.stream(scanPackages).anyMatch(pkg -> it.startsWith(pkg + StringUtils.PERIOD)))
+                            .filter(it -> isIndexedResourceClass(it))
+                            .forEach(result::add);
+                }
+            }
+            return result;
+        } catch (IOException e) {
+            logger.warn("无法读取资源类索引[{}]，扫描classpath", ResourceIndexProcessor.INDEX_LOCATION, e);
+            return null;
+        }
+    }
+
+    /**
+     * 索引可能是以前编译生成的，已经删除或者去掉了@Resource注解的类跳过
+     */
+    private boolean isIndexedResourceClass(String clazzName) {
+        try {
+            var clazz = Class.forName(clazzName);
+            if (clazz.isAnnotationPresent(com.zfoo.storage.model.anno.Resource.class)) {
+                return true;
+            }
+            logger.warn("资源类索引[{}]中的类[{}]没有@Resource注解，请重新编译生成索引", ResourceIndexProcessor.INDEX_LOCATION, clazzName);
+        } catch (ClassNotFoundException | LinkageError e) {
+            logger.warn("资源类索引[{}]中的类[{}]无法加载，请重新编译生成索引", ResourceIndexProcessor.INDEX_LOCATION, clazzName);
+        }
+        return false;
+    }
+
+    private Set<String> scanResourceClasses(String[] scanPackages) {
         var resourcePatternResolver = new PathMatchingResourcePatternResolver();
         var metadataReaderFactory = new CachingMetadataReaderFactory(resourcePatternResolver);
 
@@ -249,57 +691,61 @@ public class StorageManager implements IStorageManager {
         }
     }
 
-    private Resource scanResourceFile(Class<?> clazz) {
+    /**
+     * 每个资源目录只遍历一次，建立文件名（不含后缀）到资源文件的索引；key相同的资源只保留一个
+     */
+    Map<String, Map<String, Resource>> scanResourceFiles() {
         var resourcePatternResolver = new PathMatchingResourcePatternResolver();
-        var metadataReaderFactory = new CachingMetadataReaderFactory(resourcePatternResolver);
-
-        try {
-            var resourceDefSet = new HashSet<ResourceDef>();
-            for(var resourceLocation: storageConfig.getResourceLocations()) {
-                var packageSearchPath = StringUtils.format("{}/**/{}.*", resourceLocation, clazz.getSimpleName());
-                packageSearchPath = packageSearchPath.replaceAll("//", "/");
+        var resourceFileMap = new HashMap<String, Map<String, Resource>>();
+        for (var resourceLocation : storageConfig.getResourceLocations()) {
+            // 通配符无法匹配根目录，所以根目录再单独查找一遍
+            var searchPaths = List.of(StringUtils.format("{}/**/*", resourceLocation), StringUtils.format("{}/*", resourceLocation));
+            for (var searchPath : searchPaths) {
+                Resource[] resources;
                 try {
-                    for(var resource :resourcePatternResolver.getResources(packageSearchPath)){
-                        if(StringUtils.suffixMatch(resource.getFilename(), ResourceEnum.CSV.getType())
-                                ||StringUtils.suffixMatch(resource.getFilename(), ResourceEnum.EXCEL_XLS.getType())
-                                ||StringUtils.suffixMatch(resource.getFilename(), ResourceEnum.EXCEL_XLSX.getType())
-                                ||StringUtils.suffixMatch(resource.getFilename(), ResourceEnum.JSON.getType()))
-                        resourceDefSet.add(new ResourceDef(clazz,resource));
-                    }
-                } catch (Exception e) {
-                    // do nothing
+                    resources = resourcePatternResolver.getResources(searchPath.replaceAll("//", "/"));
+                } catch (IOException e) {
+                    // 资源目录不存在
+                    continue;
                 }
-
-                // 通配符无法匹配根目录，所以如果找不到，再从根目录查找一遍
-                if (resourceDefSet.isEmpty()) {
-                    packageSearchPath = StringUtils.format("{}/{}.*", resourceLocation, clazz.getSimpleName());
-                    packageSearchPath = packageSearchPath.replaceAll("//", "/");
-                    for(var resource :resourcePatternResolver.getResources(packageSearchPath)){
-                        if(StringUtils.suffixMatch(resource.getFilename(), ResourceEnum.CSV.getType())
-                                ||StringUtils.suffixMatch(resource.getFilename(), ResourceEnum.EXCEL_XLS.getType())
-                                ||StringUtils.suffixMatch(resource.getFilename(), ResourceEnum.EXCEL_XLSX.getType())
-                                ||StringUtils.suffixMatch(resource.getFilename(), ResourceEnum.JSON.getType()))
-                            resourceDefSet.add(new ResourceDef(clazz,resource));
+                for (var resource : resources) {
+                    var fileName = resource.getFilename();
+                    if (StringUtils.isBlank(fileName) || !ResourceEnum.containsResourceEnum(FileUtils.fileExtName(fileName))) {
+                        continue;
                     }
+                    // 和以前的{SimpleName}.*通配符保持一致，取第一个点之前的名称
+                    var dotIndex = fileName.indexOf(StringUtils.PERIOD);
+                    var simpleName = dotIndex < 0 ? fileName : fileName.substring(0, dotIndex);
+                    resourceFileMap.computeIfAbsent(simpleName, it -> new LinkedHashMap<>()).putIfAbsent(ResourceDef.resourceKey(resource), resource);
                 }
             }
+        }
+        return resourceFileMap;
+    }
 
-            if (CollectionUtils.isEmpty(resourceDefSet)) {
-                throw new RuntimeException(StringUtils.format("资源类[class:{}]无法找到配置文件", clazz.getSimpleName()));
-            } else if (resourceDefSet.size() > 1) {
-                var resourceNames=new String[resourceDefSet.size()];
-                var index=0;
-                    for(var resourceDef:resourceDefSet){
-                        resourceNames[index++]=resourceDef.getResource().getFile().getAbsolutePath();
-                    }
-
-                throw new RuntimeException(StringUtils.format("资源类[class:{}]找到重复的配置文件{}", clazz.getSimpleName(),StringUtils.stringArrayToString(resourceNames)));
-            } else {
-                return ((ResourceDef)(resourceDefSet.toArray()[0])).getResource();
+    Resource scanResourceFile(Class<?> clazz, Map<String, Map<String, Resource>> resourceFileMap) {
+        // 多个资源类放在同一个Excel文件中的时候，使用workbook的名称查找；没有Excel文件的时候再查找资源类单独导出的二进制快照
+        var resources = resourceFileMap.get(resourceFileName(clazz));
+        if (CollectionUtils.isEmpty(resources) && isWorkbookSheet(clazz)) {
+            resources = resourceFileMap.getOrDefault(clazz.getSimpleName(), Map.of()).entrySet().stream()
+                    .filter(it -> isBinary(it.getValue()))
+                    .collect(Collectors.toMap(it -> it.getKey(), it -> it.getValue(), (a, b) -> a, LinkedHashMap::new));
+        }
+        if (CollectionUtils.isEmpty(resources)) {
+            throw new RuntimeException(StringUtils.format("资源类[class:{}]无法找到配置文件", clazz.getSimpleName()));
+        }
+        if (resources.size() > 1) {
+            // 快照和原来的配置表在同一个目录中的时候使用原来的配置表，快照可能还是以前导出的
+            var sourceResources = resources.entrySet().stream()
+                    .filter(it -> !isBinary(it.getValue()))
+                    .collect(Collectors.toMap(it -> it.getKey(), it -> it.getValue(), (a, b) -> a, LinkedHashMap::new));
+            if (!sourceResources.isEmpty() && sourceResources.size() < resources.size()) {
+                resources = sourceResources;
             }
-
-        } catch (IOException e) {
-            throw new RuntimeException(ExceptionUtils.getMessage(e));
         }
+        if (resources.size() > 1) {
+            throw new RuntimeException(StringUtils.format("资源类[class:{}]找到重复的配置文件{}", clazz.getSimpleName(), StringUtils.stringArrayToString(resources.keySet().toArray(new String[0]))));
+        }
+        return resources.values().iterator().next();
     }
 }
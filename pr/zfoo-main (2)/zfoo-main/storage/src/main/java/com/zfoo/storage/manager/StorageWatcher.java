@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.manager;
+
+import com.zfoo.protocol.util.FileUtils;
+import com.zfoo.scheduler.manager.SchedulerBus;
+import com.zfoo.storage.model.anno.Resource;
+import com.zfoo.storage.model.resource.ResourceEnum;
+import com.zfoo.storage.model.vo.ResourceDef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 监听配置文件的修改，自动重新加载对应的配置表
+ * <p>
+ * 优先使用WatchService，不支持的文件系统退化为比较文件的修改时间和大小；策划保存文件的时候经常会连续保存多次，
+ * 最后一次修改之后稳定一段时间才重新加载，文件内容的hash没有改变则不重新加载；每张表只在自己的配置文件改变的时候才重新解析
+ * <p>
+ * 检查在scheduler模块的线程中执行，只检测文件的修改；重新加载比较耗时，交给单独的一个线程按顺序执行，不会阻塞scheduler的其它任务，
+ * 也不会有两次重新加载同时进行
+ * <p>
+ * mapped的配置表直接映射了二进制文件，覆盖正在映射的文件会导致读取的线程崩溃（SIGBUS），所以不监听mapped的二进制配置文件；
+ * 从其它格式的配置文件转换出来的映射缓存文件通过原子的move替换，旧的映射不受影响，可以正常监听
+ *
+ * @author godotg
+ * @version 4.0
+ */
+class StorageWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageWatcher.class);
+
+    // 检查文件修改的间隔
+    private static final long CHECK_INTERVAL = 500;
+
+    // 最后一次修改之后稳定这么久才重新加载
+    private static final long DEBOUNCE_TIME = 1000;
+
+    private final StorageManager storageManager;
+
+    // 配置文件对应的资源类，同一个Excel文件的多个sheet页对应多个资源类
+    private final Map<Path, List<Class<?>>> fileClassMap = new HashMap<>();
+
+    // 配置文件上一次加载的内容hash
+    private final Map<Path, String> fileHashMap = new HashMap<>();
+
+    // 轮询模式下配置文件上一次的修改时间和大小
+    private final Map<Path, String> fileStampMap = new HashMap<>();
+
+    // 发生了修改，还在等待稳定的配置文件，value为最后一次修改的时间
+    private final Map<Path, Long> pendingFileMap = new HashMap<>();
+
+    private WatchService watchService;
+
+    private ScheduledFuture<?> future;
+
+    // 执行重新加载的线程，只有一个线程，多次修改按顺序重新加载
+    private ExecutorService reloadExecutor;
+
+    StorageWatcher(StorageManager storageManager, Collection<ResourceDef> definitions) {
+        this.storageManager = storageManager;
+        for (var definition : definitions) {
+            var resource = definition.getResource();
+            var fileName = resource.getFilename();
+            // jar包中的配置文件不能修改，只监听文件系统中的配置文件
+            if (fileName == null || !resource.isFile() || !ResourceEnum.containsResourceEnum(FileUtils.fileExtName(fileName))) {
+                continue;
+            }
+            var annotation = definition.getClazz().getAnnotation(Resource.class);
+            if (annotation != null && annotation.mapped() && ResourceEnum.getResourceEnumByType(FileUtils.fileExtName(fileName)) == ResourceEnum.BINARY) {
+                logger.info("配置表[{}]直接映射了二进制配置文件，不监听配置文件的修改", definition.getClazz().getSimpleName());
+                continue;
+            }
+            try {
+                var path = resource.getFile().toPath().toAbsolutePath().normalize();
+                fileClassMap.computeIfAbsent(path, it -> new ArrayList<>()).add(definition.getClazz());
+            } catch (IOException e) {
+                logger.warn("无法监听配置表[{}]的配置文件[{}]", definition.getClazz().getSimpleName(), definition, e);
+            }
+        }
+    }
+
+    synchronized void start() {
+        if (future != null || fileClassMap.isEmpty()) {
+            return;
+        }
+        for (var path : fileClassMap.keySet()) {
+            fileHashMap.put(path, contentHash(path));
+            fileStampMap.put(path, stamp(path));
+        }
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            var directories = new HashSet<Path>();
+            fileClassMap.keySet().forEach(it -> directories.add(it.getParent()));
+            for (var directory : directories) {
+                directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.warn("当前文件系统不支持WatchService，使用轮询的方式监听配置文件", e);
+            closeWatchService();
+        }
+
+        reloadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "storage-reloader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        future = SchedulerBus.scheduleAtFixedRate(this::check, CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+        logger.info("开始监听[{}]个配置文件，[{}]", fileClassMap.size(), watchService == null ? "polling" : "WatchService");
+    }
+
+    synchronized void stop() {
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+        if (reloadExecutor != null) {
+            // 正在执行的重新加载会继续完成，排队的不再执行
+            reloadExecutor.shutdownNow();
+            reloadExecutor = null;
+        }
+        closeWatchService();
+    }
+
+    private synchronized void check() {
+        // 已经停止监听
+        if (future == null) {
+            return;
+        }
+        try {
+            var now = System.currentTimeMillis();
+            if (watchService == null) {
+                pollFiles(now);
+            } else {
+                pollEvents(now);
+            }
+
+            // 稳定了一段时间的配置文件才比较hash，hash改变的配置文件一起重新加载
+            var changedFileMap = new HashMap<Path, String>();
+            var iterator = pendingFileMap.entrySet().iterator();
+            while (iterator.hasNext()) {
+                var entry = iterator.next();
+                if (now - entry.getValue() < DEBOUNCE_TIME) {
+                    continue;
+                }
+                iterator.remove();
+                var path = entry.getKey();
+                var hash = contentHash(path);
+                if (hash == null || hash.equals(fileHashMap.get(path))) {
+                    continue;
+                }
+                changedFileMap.put(path, hash);
+            }
+
+            // 被回收的配置表没有被使用，懒加载还没有加载的配置表在第一次访问的时候会读取新的文件，这些配置文件不记录hash
+            var changedClasses = new LinkedHashSet<Class<?>>();
+            changedFileMap.entrySet().removeIf(entry -> {
+                var loadedClasses = fileClassMap.get(entry.getKey()).stream().filter(it -> {
+                    var storage = storageManager.storageMap().get(it);
+                    return storage != null && !storage.isRecycle() && storage.isLoaded();
+                }).collect(Collectors.toList());
+                changedClasses.addAll(loadedClasses);
+                return loadedClasses.isEmpty();
+            });
+            if (changedClasses.isEmpty()) {
+                return;
+            }
+            reloadExecutor.execute(() -> reload(changedClasses, changedFileMap));
+        } catch (Throwable t) {
+            logger.error("监听配置文件异常", t);
+        }
+    }
+
+    /**
+     * 重新加载成功之后才记录配置文件的hash；加载失败的配置文件只会在下一次修改的时候重新解析，不会反复的解析同一个错误的文件
+     */
+    private void reload(Collection<Class<?>> changedClasses, Map<Path, String> changedFileMap) {
+        try {
+            storageManager.reloadStorages(changedClasses);
+            synchronized (this) {
+                fileHashMap.putAll(changedFileMap);
+            }
+        } catch (Throwable t) {
+            logger.error("配置文件修改后重新加载配置表{}失败，继续使用旧的数据", changedClasses, t);
+        }
+    }
+
+    private void pollEvents(long now) {
+        WatchKey key;
+        while ((key = watchService.poll()) != null) {
+            var directory = (Path) key.watchable();
+            for (var event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // 事件太多丢失了，所有的配置文件都检查一遍hash
+                    fileClassMap.keySet().forEach(it -> pendingFileMap.put(it, now));
+                    continue;
+                }
+                var path = directory.resolve((Path) event.context()).toAbsolutePath().normalize();
+                if (fileClassMap.containsKey(path)) {
+                    pendingFileMap.put(path, now);
+                }
+            }
+            key.reset();
+        }
+    }
+
+    private void pollFiles(long now) {
+        for (var path : fileClassMap.keySet()) {
+            var stamp = stamp(path);
+            if (!Objects.equals(stamp, fileStampMap.get(path))) {
+                fileStampMap.put(path, stamp);
+                pendingFileMap.put(path, now);
+            }
+        }
+    }
+
+    private static String stamp(Path path) {
+        var file = path.toFile();
+        return file.lastModified() + ":" + file.length();
+    }
+
+    /**
+     * 文件内容的hash，文件正在被写入或者被删除的时候返回null
+     */
+    private static String contentHash(Path path) {
+        try {
+            var digest = StorageCache.sha256();
+            digest.update(Files.readAllBytes(path));
+            return StorageCache.toHex(digest.digest());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void closeWatchService() {
+        if (watchService == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.warn("关闭WatchService异常", e);
+        }
+        watchService = null;
+    }
+
+}
@@ -25,4 +25,39 @@ import java.lang.annotation.*;
 @Retention(RetentionPolicy.RUNTIME)
 @Target({ElementType.TYPE})
 public @interface Resource {
+
+    /**
+     * 多个资源类放在同一个Excel文件的不同sheet页时，填写Excel文件的名称（不含后缀），默认为资源类的类名
+     */
+    String workbook() default "";
+
+    /**
+     * 资源类对应的sheet页名称，只有配置了workbook才生效，默认为资源类的类名
+     */
+    String sheet() default "";
+
+    /**
+     * 使用内存映射读取.bin格式的二进制快照，堆上只保存主键和索引，行对象在访问的时候才解码，适合特别大的配置表
+     */
+    boolean mapped() default false;
+
+    /**
+     * mapped或者columnar模式下缓存最近访问的行的数量，0表示不缓存，每次访问都重新解码
+     */
+    int cacheSize() default 0;
+
+    /**
+     * 按列保存数据，int，long，float，double属性保存为基本类型数组，字符串使用字典编码，行对象在访问的时候才生成
+     * <p>
+     * 适合数值为主的大表，可以通过Storage.getIntColumn等方法直接遍历一列；cacheSize同样生效，mapped优先
+     */
+    boolean columnar() default false;
+
+    /**
+     * 加载完成后在最终的key集合上构建最小完美哈希，替换主键的Map和唯一索引，get只需要一次哈希和一次数组访问，没有冲突链
+     * <p>
+     * 适合String主键或者String唯一索引的大表；int和long主键仍然使用不装箱的Map，只转换唯一索引，mapped和columnar优先
+     */
+    boolean perfectHash() default false;
+
 }
@@ -13,6 +13,8 @@
 
 package com.zfoo.storage.model.config;
 
+import com.zfoo.storage.interpreter.ReadOperation;
+
 /**
  * @author godotg
  * @version 4.0
@@ -31,6 +33,24 @@ public class StorageConfig {
     // 未被使用的Storage是否回收，默认开启节省资源
     private boolean recycle;
 
+    // 是否使用多线程并发加载配置表，配置表很多的时候可以大幅缩短启动时间
+    private boolean parallel;
+
+    // 大于0的时候，大表的行按这个数量切块并发转换，0表示逐行转换
+    private int chunkSize;
+
+    // int主键的填充率（主键数量 / 主键范围）不小于这个值的时候使用数组保存，不在(0, 1]之间则不使用数组
+    private float denseFillFactor = ReadOperation.DEFAULT_DENSE_FILL_FACTOR;
+
+    // 是否懒加载配置表，启动的时候只扫描资源定义，第一次访问的时候才加载
+    private boolean lazy;
+
+    // 配置表转换缓存的目录，为空则不使用缓存；配置文件和资源类都没有改变的时候直接读取缓存的二进制快照
+    private String cacheDir;
+
+    // 是否监听配置文件的修改并自动重新加载，一般只在开发和测试环境开启
+    private boolean watch;
+
     public String getId() {
         return id;
     }
@@ -70,4 +90,52 @@ public class StorageConfig {
     public void setRecycle(boolean recycle) {
         this.recycle = recycle;
     }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public float getDenseFillFactor() {
+        return denseFillFactor;
+    }
+
+    public void setDenseFillFactor(float denseFillFactor) {
+        this.denseFillFactor = denseFillFactor;
+    }
+
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    public String getCacheDir() {
+        return cacheDir;
+    }
+
+    public void setCacheDir(String cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    public boolean isWatch() {
+        return watch;
+    }
+
+    public void setWatch(boolean watch) {
+        this.watch = watch;
+    }
 }
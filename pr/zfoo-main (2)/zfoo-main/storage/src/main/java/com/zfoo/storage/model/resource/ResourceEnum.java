@@ -35,6 +35,9 @@ public enum ResourceEnum {
 
     CSV("csv"),
 
+    // 使用ExportUtils.storage2binary导出的二进制快照
+    BINARY("bin"),
+
     ;
 
     private static Map<String, ResourceEnum> typeMap = new HashMap<>();
@@ -16,6 +16,7 @@ package com.zfoo.storage.model.vo;
 import com.zfoo.protocol.exception.RunException;
 import com.zfoo.protocol.util.ReflectionUtils;
 import com.zfoo.storage.model.anno.Id;
+import com.zfoo.storage.util.FieldAccessor;
 
 import java.lang.reflect.Field;
 
@@ -26,6 +27,7 @@ import java.lang.reflect.Field;
 public class IdDef {
 
     private Field field;
+    private FieldAccessor accessor;
 
     public static IdDef valueOf(Class<?> clazz) {
         var fields = ReflectionUtils.getFieldsByAnnoInPOJOClass(clazz, Id.class);
@@ -42,6 +44,7 @@ public class IdDef {
         ReflectionUtils.makeAccessible(idField);
         var idDef = new IdDef();
         idDef.setField(idField);
+        idDef.setAccessor(FieldAccessor.valueOf(idField));
         return idDef;
     }
 
@@ -53,4 +56,12 @@ public class IdDef {
     public void setField(Field field) {
         this.field = field;
     }
+
+    public FieldAccessor getAccessor() {
+        return accessor;
+    }
+
+    public void setAccessor(FieldAccessor accessor) {
+        this.accessor = accessor;
+    }
 }
@@ -18,6 +18,7 @@ import com.zfoo.protocol.exception.RunException;
 import com.zfoo.protocol.util.ReflectionUtils;
 import com.zfoo.protocol.util.StringUtils;
 import com.zfoo.storage.model.anno.Index;
+import com.zfoo.storage.util.FieldAccessor;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
@@ -34,10 +35,12 @@ public class IndexDef {
 
     private boolean unique;
     private Field field;
+    private FieldAccessor accessor;
 
     public IndexDef(Field field) {
         ReflectionUtils.makeAccessible(field);
         this.field = field;
+        this.accessor = FieldAccessor.valueOf(field);
         var index = field.getAnnotation(Index.class);
         this.unique = index.unique();
     }
@@ -82,4 +85,12 @@ public class IndexDef {
     public void setField(Field field) {
         this.field = field;
     }
+
+    public FieldAccessor getAccessor() {
+        return accessor;
+    }
+
+    public void setAccessor(FieldAccessor accessor) {
+        this.accessor = accessor;
+    }
 }
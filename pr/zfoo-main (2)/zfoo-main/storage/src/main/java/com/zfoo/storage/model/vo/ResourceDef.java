@@ -16,7 +16,6 @@ package com.zfoo.storage.model.vo;
 import org.springframework.core.io.Resource;
 
 import java.io.IOException;
-import java.util.Objects;
 
 /**
  * @author godotg
@@ -26,12 +25,25 @@ public class ResourceDef {
 
     private final Class<?> clazz;
     private final Resource resource;
+    // 资源文件的唯一标识，只在创建的时候计算一次
+    private final String key;
 
     public ResourceDef(Class<?> clazz, Resource resource) {
         this.clazz = clazz;
         this.resource = resource;
+        this.key = resourceKey(resource);
     }
 
+    /**
+     * 优先使用资源的URL作为唯一标识，jar包中的资源也有URL；获取不到URL的资源使用资源的描述
+     */
+    public static String resourceKey(Resource resource) {
+        try {
+            return resource.getURL().toString();
+        } catch (IOException e) {
+            return resource.getDescription();
+        }
+    }
 
     public Class<?> getClazz() {
         return clazz;
@@ -41,28 +53,25 @@ public class ResourceDef {
         return resource;
     }
 
+    public String getKey() {
+        return key;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ResourceDef that = (ResourceDef) o;
-        boolean equal= false;
-        try {
-            equal = this.resource.getFile().getAbsolutePath().equals(that.resource.getFile().getAbsolutePath());
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return equal;
+        return key.equals(that.key);
     }
 
     @Override
     public int hashCode() {
-        int hashCode=0;
-        try {
-            hashCode=this.resource.getFile().getAbsolutePath().hashCode();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return hashCode;
+        return key.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return key;
     }
 }
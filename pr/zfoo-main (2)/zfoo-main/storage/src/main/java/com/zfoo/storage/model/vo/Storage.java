@@ -16,13 +16,17 @@ package com.zfoo.storage.model.vo;
 import com.zfoo.protocol.collection.CollectionUtils;
 import com.zfoo.protocol.util.AssertionUtils;
 import com.zfoo.protocol.util.IOUtils;
-import com.zfoo.protocol.util.ReflectionUtils;
 import com.zfoo.protocol.util.StringUtils;
+import com.zfoo.storage.collection.*;
+import com.zfoo.storage.interpreter.ReadOperation;
 import com.zfoo.storage.interpreter.ResourceInterpreter;
 import org.springframework.lang.Nullable;
 
+import java.io.File;
 import java.io.InputStream;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * @author godotg
@@ -35,30 +39,47 @@ public class Storage<K, V> {
     // 当前配置表是否在当前项目中使用，没有被使用的会清楚data数据，以达到节省内存的目的
     private boolean recycle = true;
 
-    private Map<K, V> dataMap = new HashMap<>();
-    // 非唯一索引
-    private Map<String, Map<Object, List<V>>> indexMap = new HashMap<>();
-    // 唯一索引
-    private Map<String, Map<Object, V>> uniqueIndexMap = new HashMap<>();
-
     private IdDef idDef;
     private Map<String, IndexDef> indexDefMap;
 
-    public void init(InputStream inputStream, Class<?> resourceClazz, String suffix) {
-        try {
-            this.clazz = (Class<V>) resourceClazz;
-            idDef = IdDef.valueOf(resourceClazz);
-            indexDefMap = IndexDef.createResourceIndexes(resourceClazz);
+    // 当前版本的数据，加载完成后就不会再修改；重新加载的时候整体替换，读取的一方不需要加锁，正在读取的一方仍然使用旧版本
+    private volatile Data<K, V> data;
 
-            var list = ResourceInterpreter.read(inputStream, resourceClazz, suffix);
+    // 正在加载的数据，只有加载数据的线程可以访问，afterLoad的时候才发布到data
+    private Data<K, V> building;
 
-            dataMap.clear();
-            indexMap.clear();
-            uniqueIndexMap.clear();
+    // 懒加载模式下第一次访问时才加载数据，加载完成后置为null
+    private volatile Supplier<Storage<?, ?>> loader;
 
-            for (var object : list) {
-                put((V) object);
-            }
+    /**
+     * 一个版本的配置表数据
+     */
+    private static final class Data<K, V> {
+        private final Map<K, V> dataMap;
+        // 非唯一索引
+        private final Map<String, Map<Object, List<V>>> indexMap;
+        // 唯一索引
+        private final Map<String, Map<Object, V>> uniqueIndexMap;
+        // 列存储模式下的数据，其它模式为null
+        private final ColumnarTable<K, V> columnarTable;
+
+        private Data(Map<K, V> dataMap, Map<String, Map<Object, List<V>>> indexMap, Map<String, Map<Object, V>> uniqueIndexMap, ColumnarTable<K, V> columnarTable) {
+            this.dataMap = dataMap;
+            this.indexMap = indexMap;
+            this.uniqueIndexMap = uniqueIndexMap;
+            this.columnarTable = columnarTable;
+        }
+    }
+
+    public void init(InputStream inputStream, Class<?> resourceClazz, String suffix) {
+        init(inputStream, resourceClazz, suffix, new ReadOperation());
+    }
+
+    public void init(InputStream inputStream, Class<?> resourceClazz, String suffix, ReadOperation operation) {
+        try {
+            // 每转换出一行就直接放入Storage，不会先生成整张表的中间数据；数据在afterLoad的时候才发布，加载失败保留以前的数据
+            ResourceInterpreter.read(inputStream, (Class<V>) resourceClazz, suffix, prepare(resourceClazz), operation);
+            afterLoad(operation);
         } catch (Throwable e) {
             throw new RuntimeException(e.getMessage(), e);
         } finally {
@@ -66,11 +87,162 @@ public class Storage<K, V> {
         }
     }
 
+    /**
+     * 准备加载资源类，返回接收每一行数据的回调；多个资源类共用一个Excel文件的时候由调用方推送数据
+     */
+    public Consumer<V> prepare(Class<?> resourceClazz) {
+        this.clazz = (Class<V>) resourceClazz;
+        idDef = IdDef.valueOf(resourceClazz);
+        indexDefMap = IndexDef.createResourceIndexes(resourceClazz);
+
+        // 在新的Map中加载，当前的数据在afterLoad之前仍然可以正常读取
+        building = new Data<>(createDataMap(idDef), new HashMap<>(), new HashMap<>(), null);
+        return this::put;
+    }
+
+    /**
+     * 所有的行都放入之后调用，冻结加载时使用的可变结构：连续的int主键换成数组保存，其它主键的Map释放多余的容量，
+     * 非唯一索引转换为CSR格式，getIndex返回的是只读的视图；冻结之后一次性发布
+     */
+    public void afterLoad(ReadOperation operation) {
+        var dataMap = building.dataMap;
+        if (dataMap instanceof IntObjectMap) {
+            var denseMap = DenseArrayMap.valueOf((IntObjectMap<V>) dataMap, operation.getDenseFillFactor());
+            if (denseMap != null) {
+                dataMap = (Map<K, V>) denseMap;
+            } else {
+                ((IntObjectMap<V>) dataMap).trimToSize();
+            }
+        } else if (dataMap instanceof LongObjectMap) {
+            ((LongObjectMap<V>) dataMap).trimToSize();
+        } else if (dataMap instanceof StringObjectMap) {
+            ((StringObjectMap<V>) dataMap).trimToSize();
+        }
+
+        var csrIndexMap = new HashMap<String, Map<Object, List<V>>>(building.indexMap.size() * 4 / 3 + 1);
+        building.indexMap.forEach((name, index) -> csrIndexMap.put(name, CsrIndexMap.valueOf(index)));
+
+        data = new Data<>(dataMap, csrIndexMap, building.uniqueIndexMap, null);
+        building = null;
+    }
+
+    /**
+     * 根据主键的类型选择Map，int和long使用开放寻址的Map，get的时候不需要装箱；枚举使用EnumMap；String使用保存了hash的开放寻址Map
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <K, V> Map<K, V> createDataMap(IdDef idDef) {
+        var idType = idDef.getField().getType();
+        if (idType == int.class || idType == Integer.class) {
+            return (Map<K, V>) new IntObjectMap<V>();
+        } else if (idType == long.class || idType == Long.class) {
+            return (Map<K, V>) new LongObjectMap<V>();
+        } else if (idType == String.class) {
+            return (Map<K, V>) new StringObjectMap<V>();
+        } else if (idType.isEnum()) {
+            return new EnumMap(idType);
+        }
+        return new HashMap<>();
+    }
+
+    /**
+     * 使用内存映射的方式加载二进制快照，dataMap和索引都是只读的视图，行对象在访问的时候才解码
+     */
+    public void initMapped(File file, Class<?> resourceClazz, int cacheSize) {
+        this.clazz = (Class<V>) resourceClazz;
+        idDef = IdDef.valueOf(resourceClazz);
+        indexDefMap = IndexDef.createResourceIndexes(resourceClazz);
+
+        var table = MappedTable.<K, V>open(file, clazz, indexDefMap, cacheSize);
+        data = new Data<>(table.dataMap(), table.indexMap(), table.uniqueIndexMap(), null);
+    }
+
+    /**
+     * 把已经加载到堆上的数据转换为列存储，dataMap和索引变为只读的视图，行对象在访问的时候才生成
+     */
+    public void toColumnar(int cacheSize) {
+        var table = ColumnarTable.<K, V>build(clazz, data().dataMap.values(), idDef, indexDefMap, cacheSize);
+        data = new Data<>(table.dataMap(), table.indexMap(), table.uniqueIndexMap(), table);
+    }
+
+    /**
+     * 数据不会再修改，String等对象主键的Map和唯一索引换成最小完美哈希；无法构建的Map保持不变
+     * <p>
+     * int和long主键的Map查找的时候不装箱，换成以Object为key的完美哈希反而需要装箱，所以保持不变；
+     * 枚举主键的EnumMap直接用ordinal作为数组下标，比完美哈希更快，也保持不变
+     */
+    public void toPerfectHash() {
+        var current = data();
+        var dataMap = current.dataMap;
+        if (!(dataMap instanceof DenseArrayMap || dataMap instanceof IntObjectMap || dataMap instanceof LongObjectMap || dataMap instanceof EnumMap)) {
+            var perfectMap = PerfectHashMap.valueOf(dataMap);
+            if (perfectMap != null) {
+                dataMap = perfectMap;
+            }
+        }
+        var perfectIndexMap = new HashMap<String, Map<Object, V>>();
+        current.uniqueIndexMap.forEach((name, index) -> {
+            if (index instanceof EnumMap) {
+                perfectIndexMap.put(name, index);
+                return;
+            }
+            var perfectIndex = PerfectHashMap.valueOf(index);
+            perfectIndexMap.put(name, perfectIndex == null ? index : perfectIndex);
+        });
+        data = new Data<>(dataMap, current.indexMap, perfectIndexMap, current.columnarTable);
+    }
+
+    /**
+     * 懒加载模式，只记录资源类，第一次访问数据的时候才调用loader加载；并发访问的时候只会加载一次
+     */
+    public void initLazy(Class<?> resourceClazz, Supplier<Storage<?, ?>> loader) {
+        this.clazz = (Class<V>) resourceClazz;
+        idDef = IdDef.valueOf(resourceClazz);
+        indexDefMap = IndexDef.createResourceIndexes(resourceClazz);
+        this.loader = loader;
+    }
+
+    public boolean isLoaded() {
+        return loader == null;
+    }
+
+    /**
+     * 读取当前版本的数据，只有一次volatile读；一次调用中只使用这一个版本，不会看到加载了一半的数据
+     */
+    private Data<K, V> data() {
+        var current = data;
+        return current == null ? load() : current;
+    }
+
+    private synchronized Data<K, V> load() {
+        if (data != null) {
+            return data;
+        }
+        var currentLoader = loader;
+        AssertionUtils.notNull(currentLoader, "静态资源[resource:{}]没有加载或者已经被回收", clazz.getSimpleName());
+        publish(currentLoader.get());
+        return data;
+    }
+
+    /**
+     * 发布另外一个已经加载完成的Storage的数据，替换当前版本
+     * <p>
+     * 通过ResInjection注入的还是这个Storage，所以不需要重新注入；读取的一方不加锁，在替换之前开始的读取仍然使用旧版本
+     */
+    public synchronized void publish(Storage<?, ?> storage) {
+        if (storage == this) {
+            return;
+        }
+        var other = (Storage<K, V>) storage;
+        var otherData = other.data();
+        idDef = other.idDef;
+        indexDefMap = other.indexDefMap;
+        data = otherData;
+        loader = null;
+    }
+
     public void recycleStorage() {
         recycle = true;
-        dataMap = null;
-        indexMap = null;
-        uniqueIndexMap = null;
+        data = null;
         idDef = null;
         indexDefMap = null;
     }
@@ -79,16 +251,23 @@ public class Storage<K, V> {
         return recycle;
     }
 
+    /**
+     * 已经被回收，或者还没有加载的配置表，读取数据会抛出异常；懒加载还没有加载的配置表在第一次读取的时候加载，不算在内
+     */
+    public boolean isRecycled() {
+        return data == null && loader == null;
+    }
+
     public void setRecycle(boolean recycle) {
         this.recycle = recycle;
     }
 
     public Collection<V> getAll() {
-        return Collections.unmodifiableCollection(dataMap.values());
+        return Collections.unmodifiableCollection(data().dataMap.values());
     }
 
     public Map<K, V> getData() {
-        return Collections.unmodifiableMap(dataMap);
+        return Collections.unmodifiableMap(data().dataMap);
     }
 
     public IdDef getIdDef() {
@@ -96,17 +275,104 @@ public class Storage<K, V> {
     }
 
     public boolean contain(K key) {
-        return dataMap.containsKey(key);
+        return data().dataMap.containsKey(key);
     }
 
     public V get(K id) {
-        V result = dataMap.get(id);
+        V result = data().dataMap.get(id);
+        AssertionUtils.notNull(result, "静态资源[resource:{}]中表示为[id:{}]的静态资源不存在", clazz.getSimpleName(), id);
+        return result;
+    }
+
+    /**
+     * int主键的get，查找的时候不会装箱
+     */
+    public V get(int id) {
+        var dataMap = data().dataMap;
+        V result;
+        if (dataMap instanceof DenseArrayMap) {
+            result = ((DenseArrayMap<V>) dataMap).get(id);
+        } else if (dataMap instanceof IntObjectMap) {
+            result = ((IntObjectMap<V>) dataMap).get(id);
+        } else if (dataMap instanceof LongObjectMap) {
+            result = ((LongObjectMap<V>) dataMap).get(id);
+        } else {
+            var key = numberKey(id);
+            result = key == null ? null : dataMap.get(key);
+        }
         AssertionUtils.notNull(result, "静态资源[resource:{}]中表示为[id:{}]的静态资源不存在", clazz.getSimpleName(), id);
         return result;
     }
 
+    /**
+     * long主键的get，查找的时候不会装箱
+     */
+    public V get(long id) {
+        var dataMap = data().dataMap;
+        V result;
+        if (dataMap instanceof LongObjectMap) {
+            result = ((LongObjectMap<V>) dataMap).get(id);
+        } else if (dataMap instanceof DenseArrayMap) {
+            result = ((DenseArrayMap<V>) dataMap).get(id);
+        } else if (dataMap instanceof IntObjectMap) {
+            result = id == (int) id ? ((IntObjectMap<V>) dataMap).get((int) id) : null;
+        } else {
+            var key = numberKey(id);
+            result = key == null ? null : dataMap.get(key);
+        }
+        AssertionUtils.notNull(result, "静态资源[resource:{}]中表示为[id:{}]的静态资源不存在", clazz.getSimpleName(), id);
+        return result;
+    }
+
+    public boolean contain(int id) {
+        var dataMap = data().dataMap;
+        if (dataMap instanceof DenseArrayMap) {
+            return ((DenseArrayMap<V>) dataMap).containsKey(id);
+        } else if (dataMap instanceof IntObjectMap) {
+            return ((IntObjectMap<V>) dataMap).containsKey(id);
+        } else if (dataMap instanceof LongObjectMap) {
+            return ((LongObjectMap<V>) dataMap).containsKey(id);
+        }
+        var key = numberKey(id);
+        return key != null && dataMap.containsKey(key);
+    }
+
+    public boolean contain(long id) {
+        var dataMap = data().dataMap;
+        if (dataMap instanceof LongObjectMap) {
+            return ((LongObjectMap<V>) dataMap).containsKey(id);
+        } else if (dataMap instanceof DenseArrayMap) {
+            return ((DenseArrayMap<V>) dataMap).get(id) != null;
+        } else if (dataMap instanceof IntObjectMap) {
+            return id == (int) id && ((IntObjectMap<V>) dataMap).containsKey((int) id);
+        }
+        var key = numberKey(id);
+        return key != null && dataMap.containsKey(key);
+    }
+
+    /**
+     * 内存映射，列存储或者short，byte主键的Map不是按基本类型保存的，需要装箱成主键的类型再查找
+     *
+     * @return 超出主键类型范围的id一定不存在，返回null，不能截断成另外一个id
+     */
+    @Nullable
+    private Object numberKey(long id) {
+        var idType = idDef.getField().getType();
+        if (idType == int.class || idType == Integer.class) {
+            return id == (int) id ? (Object) (int) id : null;
+        } else if (idType == short.class || idType == Short.class) {
+            return id == (short) id ? (Object) (short) id : null;
+        } else if (idType == byte.class || idType == Byte.class) {
+            return id == (byte) id ? (Object) (byte) id : null;
+        }
+        return id;
+    }
+
+    /**
+     * 返回的List是只读的，不需要复制
+     */
     public List<V> getIndex(String indexName, Object key) {
-        var indexValues = indexMap.get(indexName);
+        var indexValues = data().indexMap.get(indexName);
         AssertionUtils.notNull(indexValues, "静态资源[resource:{}]不存在为[indexName:{}]的索引", clazz.getSimpleName(), indexName);
         var values = indexValues.get(key);
         if (CollectionUtils.isEmpty(values)) {
@@ -117,7 +383,7 @@ public class Storage<K, V> {
 
     @Nullable
     public V getUniqueIndex(String uniqueIndexName, Object key) {
-        var indexValueMap = uniqueIndexMap.get(uniqueIndexName);
+        var indexValueMap = data().uniqueIndexMap.get(uniqueIndexName);
         AssertionUtils.notNull(indexValueMap, "静态资源[resource:{}]不存在为[uniqueIndexName:{}]的唯一索引", clazz.getSimpleName(), uniqueIndexName);
         var value = indexValueMap.get(key);
         return value;
@@ -125,7 +391,8 @@ public class Storage<K, V> {
 
 
     private V put(V value) {
-        var key = (K) ReflectionUtils.getField(idDef.getField(), value);
+        var dataMap = building.dataMap;
+        var key = (K) idDef.getAccessor().get(value);
 
         if (key == null) {
             throw new RuntimeException("静态资源存在id未配置的项");
@@ -142,14 +409,14 @@ public class Storage<K, V> {
         for (var def : indexDefMap.values()) {
             // 使用field的名称作为索引的名称
             var indexKey = def.getField().getName();
-            var indexValue = ReflectionUtils.getField(def.getField(), value);
+            var indexValue = def.getAccessor().get(value);
             if (def.isUnique()) {// 唯一索引
-                var index = uniqueIndexMap.computeIfAbsent(indexKey, k -> new HashMap<>());
+                var index = building.uniqueIndexMap.computeIfAbsent(indexKey, k -> new HashMap<>());
                 if (index.put(indexValue, value) != null) {
                     throw new RuntimeException(StringUtils.format("静态资源[class:{}]的唯一索引重复[index:{}][value:{}]", clazz.getName(), indexKey, indexValue));
                 }
             } else {// 不是唯一索引
-                var index = indexMap.computeIfAbsent(indexKey, k -> new HashMap<>());
+                var index = building.indexMap.computeIfAbsent(indexKey, k -> new HashMap<>());
                 var list = index.computeIfAbsent(indexValue, k -> new ArrayList<V>());
                 list.add(value);
             }
@@ -157,8 +424,48 @@ public class Storage<K, V> {
         return result;
     }
 
+    /**
+     * 列存储模式下按列读取，返回的数组下标为行号，不能修改；遍历一列不需要生成行对象
+     */
+    public int[] getIntColumn(String fieldName) {
+        return columnarTable().intColumn(fieldName);
+    }
+
+    public long[] getLongColumn(String fieldName) {
+        return columnarTable().longColumn(fieldName);
+    }
+
+    public float[] getFloatColumn(String fieldName) {
+        return columnarTable().floatColumn(fieldName);
+    }
+
+    public double[] getDoubleColumn(String fieldName) {
+        return columnarTable().doubleColumn(fieldName);
+    }
+
+    /**
+     * short，byte，boolean的包装类型按基本类型读取，null读取为0或者false
+     */
+    public short[] getShortColumn(String fieldName) {
+        return columnarTable().shortColumn(fieldName);
+    }
+
+    public byte[] getByteColumn(String fieldName) {
+        return columnarTable().byteColumn(fieldName);
+    }
+
+    public BitSet getBooleanColumn(String fieldName) {
+        return columnarTable().booleanColumn(fieldName);
+    }
+
+    private ColumnarTable<K, V> columnarTable() {
+        var columnarTable = data().columnarTable;
+        AssertionUtils.notNull(columnarTable, "静态资源[resource:{}]不是列存储，无法按列读取，请配置@Resource(columnar = true)", clazz.getSimpleName());
+        return columnarTable;
+    }
+
     public int size() {
-        return dataMap.size();
+        return data().dataMap.size();
     }
 
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 编译期生成@Resource资源类的索引文件，启动的时候StorageManager直接读取索引，不需要扫描classpath中所有的class文件
+ * <p>
+ * 依赖storage模块的工程在编译的时候会自动使用这个注解处理器，索引文件为META-INF/zfoo/storage.resources，每一行是一个资源类的类名
+ *
+ * @author godotg
+ * @version 4.0
+ */
+@SupportedAnnotationTypes(ResourceIndexProcessor.RESOURCE_ANNOTATION)
+public class ResourceIndexProcessor extends AbstractProcessor {
+
+    public static final String RESOURCE_ANNOTATION = "com.zfoo.storage.model.anno.Resource";
+
+    public static final String INDEX_LOCATION = "META-INF/zfoo/storage.resources";
+
+    private final Set<String> resourceClasses = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (var annotation : annotations) {
+            for (var element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.CLASS) {
+                    resourceClasses.add(processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString());
+                }
+            }
+        }
+
+        if (roundEnv.processingOver() && !resourceClasses.isEmpty()) {
+            writeIndex();
+        }
+        // 不独占@Resource注解，其它的处理器也可以处理
+        return false;
+    }
+
+    private void writeIndex() {
+        var filer = processingEnv.getFiler();
+
+        // 增量编译的时候只会处理改变了的类，需要合并以前生成的索引；已经删除或者去掉了@Resource注解的类不再保留
+        try {
+            var oldIndex = filer.getResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+            try (var reader = new BufferedReader(new InputStreamReader(oldIndex.openInputStream(), StandardCharsets.UTF_8))) {
+                reader.lines().map(String::trim).filter(it -> !it.isEmpty()).filter(this::isResourceType).forEach(resourceClasses::add);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // 以前没有生成过索引
+        }
+
+        try {
+            var index = filer.createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+            try (var writer = new BufferedWriter(new OutputStreamWriter(index.openOutputStream(), StandardCharsets.UTF_8))) {
+                for (var resourceClass : resourceClasses) {
+                    writer.write(resourceClass);
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "无法生成资源类索引" + INDEX_LOCATION + "：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 索引中保存的是binary name，内部类的$需要换成.才能找到对应的类型
+     */
+    private boolean isResourceType(String binaryName) {
+        var element = processingEnv.getElementUtils().getTypeElement(binaryName.replace('$', '.'));
+        if (element == null) {
+            return false;
+        }
+        return element.getAnnotationMirrors()
+                .stream()
+                .anyMatch(it -> RESOURCE_ANNOTATION.equals(((TypeElement) it.getAnnotationType().asElement()).getQualifiedName().toString()));
+    }
+
+}
@@ -66,10 +66,16 @@ public class StorageDefinitionParser implements BeanDefinitionParser {
         }
 
         resolvePlaceholder("id", "id", builder, element, parserContext);
-        resolvePlaceholder("package", "scanPackages", builder, scanElement, parserContext);
+        resolveListPlaceholder("package", "scanPackages", builder, scanElement, parserContext);
         resolvePlaceholder("writeable", "writeable", builder, scanElement, parserContext);
         resolvePlaceholder("recycle", "recycle", builder, scanElement, parserContext);
-        resolvePlaceholder("location", "resourceLocations", builder, resourceElement, parserContext);
+        resolvePlaceholder("parallel", "parallel", builder, scanElement, parserContext);
+        resolvePlaceholder("chunk", "chunkSize", builder, scanElement, parserContext);
+        resolvePlaceholder("dense", "denseFillFactor", builder, scanElement, parserContext);
+        resolvePlaceholder("lazy", "lazy", builder, scanElement, parserContext);
+        resolvePlaceholder("cache", "cacheDir", builder, scanElement, parserContext);
+        resolvePlaceholder("watch", "watch", builder, scanElement, parserContext);
+        resolveListPlaceholder("location", "resourceLocations", builder, resourceElement, parserContext);
 
         parserContext.getRegistry().registerBeanDefinition(clazz.getCanonicalName(), builder.getBeanDefinition());
     }
@@ -89,6 +95,16 @@ public class StorageDefinitionParser implements BeanDefinitionParser {
     }
 
     private void resolvePlaceholder(String attributeName, String fieldName, BeanDefinitionBuilder builder, Element element, ParserContext parserContext) {
+        var attributeValue = element.getAttribute(attributeName);
+        var environment = parserContext.getReaderContext().getEnvironment();
+        var placeholder = environment.resolvePlaceholders(attributeValue);
+        builder.addPropertyValue(fieldName, placeholder);
+    }
+
+    /**
+     * 多个包名或者资源目录可以使用逗号，分号或者空格分隔；缓存目录这些单个路径中的空格不能替换
+     */
+    private void resolveListPlaceholder(String attributeName, String fieldName, BeanDefinitionBuilder builder, Element element, ParserContext parserContext) {
         var attributeValue = element.getAttribute(attributeName);
         attributeValue=attributeValue.replaceAll(";",",");
         attributeValue=attributeValue.replaceAll(" ",",");
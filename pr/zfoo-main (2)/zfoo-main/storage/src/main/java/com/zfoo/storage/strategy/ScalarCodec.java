@@ -0,0 +1,521 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.strategy;
+
+import com.zfoo.storage.util.FieldAccessor;
+import org.springframework.core.convert.ConverterNotFoundException;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.converter.GenericConverter;
+import org.springframework.lang.Nullable;
+
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 基本类型，枚举，String，日期等标量属性的编解码，单元格的字符串直接解析为基本类型赋值，不经过Spring的ConversionService
+ * <p>
+ * 解析规则和Spring默认的转换器保持一致，快速解析失败的内容（比如16进制的数字）交给原来的转换器处理
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public abstract class ScalarCodec {
+
+    // SimpleDateFormat使用的格式
+    public static final String DATE_PATTERN = "yyyy-MM-dd HH:mm:ss";
+    // 严格解析，2月30号，25点这些SimpleDateFormat宽松解析会进位的内容解析失败，交给原来宽松的解析规则
+    public static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("uuuu-MM-dd HH:mm:ss").withResolverStyle(ResolverStyle.STRICT);
+
+    protected final FieldAccessor accessor;
+    private final TypeDescriptor sourceType;
+    private final TypeDescriptor targetType;
+    private final GenericConverter converter;
+
+    protected ScalarCodec(FieldAccessor accessor, TypeDescriptor sourceType, TypeDescriptor targetType, GenericConverter converter) {
+        this.accessor = accessor;
+        this.sourceType = sourceType;
+        this.targetType = targetType;
+        this.converter = converter;
+    }
+
+    /**
+     * 为标量属性创建编解码器
+     *
+     * @param converter 属性原来的转换器，快速解析失败时使用
+     * @return 不是标量属性时返回null
+     */
+    @Nullable
+    public static ScalarCodec valueOf(Field field, FieldAccessor accessor, TypeDescriptor sourceType, TypeDescriptor targetType, @Nullable GenericConverter converter) {
+        var type = field.getType();
+        if (type == String.class) {
+            return new StringCodec(accessor, sourceType, targetType, converter);
+        } else if (type == int.class || type == Integer.class) {
+            return new IntCodec(accessor, sourceType, targetType, converter);
+        } else if (type == long.class || type == Long.class) {
+            return new LongCodec(accessor, sourceType, targetType, converter);
+        } else if (type == short.class || type == Short.class) {
+            return new ShortCodec(accessor, sourceType, targetType, converter);
+        } else if (type == byte.class || type == Byte.class) {
+            return new ByteCodec(accessor, sourceType, targetType, converter);
+        } else if (type == float.class || type == Float.class) {
+            return new FloatCodec(accessor, sourceType, targetType, converter);
+        } else if (type == double.class || type == Double.class) {
+            return new DoubleCodec(accessor, sourceType, targetType, converter);
+        } else if (type == boolean.class || type == Boolean.class) {
+            return new BooleanCodec(accessor, sourceType, targetType, converter);
+        } else if (type.isEnum()) {
+            return new EnumCodec(accessor, sourceType, targetType, converter, type);
+        } else if (type == Date.class) {
+            return new DateCodec(accessor, sourceType, targetType, converter);
+        } else if (type == LocalDateTime.class) {
+            return new LocalDateTimeCodec(accessor, sourceType, targetType, converter);
+        } else if (type == LocalDate.class) {
+            return new LocalDateCodec(accessor, sourceType, targetType, converter);
+        } else if (type == LocalTime.class) {
+            return new LocalTimeCodec(accessor, sourceType, targetType, converter);
+        }
+        return null;
+    }
+
+    /**
+     * 把单元格的内容解析后赋值给instance的属性
+     */
+    public abstract void inject(Object instance, String content);
+
+    /**
+     * Excel中的数字单元格，默认转换为和CellUtils.getCellStringValue一样的字符串再解析
+     *
+     * @param integral 单元格的格式中没有小数部分，并且值为整数
+     */
+    public void injectNumber(Object instance, double value, boolean integral) {
+        inject(instance, integral ? Long.toString((long) value) : Double.toString(value));
+    }
+
+    public void injectBoolean(Object instance, boolean value) {
+        inject(instance, String.valueOf(value));
+    }
+
+    public void injectDate(Object instance, Date value) {
+        inject(instance, value.toString().trim());
+    }
+
+    /**
+     * 快速解析失败时使用属性原来的转换器，保证能够解析的内容和之前一致
+     */
+    protected void fallback(Object instance, String content) {
+        if (converter == null) {
+            throw new ConverterNotFoundException(sourceType, targetType);
+        }
+        accessor.set(instance, converter.convert(content, sourceType, targetType));
+    }
+
+    private static class StringCodec extends ScalarCodec {
+        StringCodec(FieldAccessor accessor, TypeDescriptor sourceType, TypeDescriptor targetType, GenericConverter converter) {
+            super(accessor, sourceType, targetType, converter);
+        }
+
+        @Override
+        public void inject(Object instance, String content) {
+            accessor.set(instance, content);
+        }
+    }
+
+    private static class IntCodec extends ScalarCodec {
+        private final boolean primitive;
+
+        IntCodec(FieldAccessor accessor, TypeDescriptor sourceType, TypeDescriptor targetType, GenericConverter converter) {
+            super(accessor, sourceType, targetType, converter);
+            this.primitive = targetType.getType().isPrimitive();
+        }
+
+        @Override
+        public void inject(Object instance, String content) {
+            int value;
+            try {
+                value = Integer.parseInt(content.trim());
+            } catch (NumberFormatException e) {
+                fallback(instance, content);
+                return;
+            }
+            if (primitive) {
+                accessor.setInt(instance, value);
+            } else {
+                accessor.set(instance, value);
+            }
+        }
+
+        @Override
+        public void injectNumber(Object instance, double value, boolean integral) {
+            if (!integral || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                super.injectNumber(instance, value, integral);
+                return;
+            }
+            if (primitive) {
+                accessor.setInt(instance, (int) value);
+            } else {
+                accessor.set(instance, (int) value);
+            }
+        }
+    }
+
+    private static class LongCodec extends ScalarCodec {
+        private final boolean primitive;
+
+        LongCodec(FieldAccessor accessor, TypeDescriptor sourceType, TypeDescriptor targetType, GenericConverter converter) {
+            super(accessor, sourceType, targetType, converter);
+            this.primitive = targetType.getType().isPrimitive();
+        }
+
+        @Override
+        public void inject(Object instance, String content) {
+            long value;
+            try {
+                value = Long.parseLong(content.trim());
+            } catch (NumberFormatException e) {
+                fallback(instance, content);
+                return;
+            }
+            if (primitive) {
+                accessor.setLong(instance, value);
+            } else {
+                accessor.set(instance, value);
+            }
+        }
+
+        @Override
+        public void injectNumber(Object instance, double value, boolean integral) {
+            if (!integral) {
+                super.injectNumber(instance, value, integral);
+                return;
+            }
+            if (primitive) {
+                accessor.setLong(instance, (long) value);
+            } else {
+                accessor.set(instance, (long) value);
+            }
+        }
+    }
+
+    private static class ShortCodec extends ScalarCodec {
+        private final boolean primitive;
+
+        ShortCodec(FieldAccessor accessor, TypeDescriptor sourceType, TypeDescriptor targetType, GenericConverter converter) {
+            super(accessor, sourceType, targetType, converter);
+            this.primitive = targetType.getType().isPrimitive();
+        }
+
+        @Override
+        public void inject(Object instance, String content) {
+            short value;
+            try {
+                value = Short.parseShort(content.trim());
+            } catch (NumberFormatException e) {
+                fallback(instance, content);
+                return;
+            }
+            if (primitive) {
+                accessor.setShort(instance, value);
+            } else {
+                accessor.set(instance, value);
+            }
+        }
+
+        @Override
+        public void injectNumber(Object instance, double value, boolean integral) {
+            if (!integral || value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+                super.injectNumber(instance, value, integral);
+                return;
+            }
+            if (primitive) {
+                accessor.setShort(instance, (short) value);
+            } else {
+                accessor.set(instance, (short) value);
+            }
+        }
+    }
+
+    private static class ByteCodec extends ScalarCodec {
+        private final boolean primitive;
+
+        ByteCodec(FieldAccessor accessor, TypeDescriptor sourceType, TypeDescriptor targetType, GenericConverter converter) {
+            super(accessor, sourceType, targetType, converter);
+            this.primitive = targetType.getType().isPrimitive();
+        }
+
+        @Override
+        public void inject(Object instance, String content) {
+            byte value;
+            try {
+                value = Byte.parseByte(content.trim());
+            } catch (NumberFormatException e) {
+                fallback(instance, content);
+                return;
+            }
+            if (primitive) {
+                accessor.setByte(instance, value);
+            } else {
+                accessor.set(instance, value);
+            }
+        }
+
+        @Override
+        public void injectNumber(Object instance, double value, boolean integral) {
+            if (!integral || value < Byte.MIN_VALUE || value > Byte.MAX_VALUE) {
+                super.injectNumber(instance, value, integral);
+                return;
+            }
+            if (primitive) {
+                accessor.setByte(instance, (byte) value);
+            } else {
+                accessor.set(instance, (byte) value);
+            }
+        }
+    }
+
+    private static class FloatCodec extends ScalarCodec {
+        private final boolean primitive;
+
+        FloatCodec(FieldAccessor accessor, TypeDescriptor sourceType, TypeDescriptor targetType, GenericConverter converter) {
+            super(accessor, sourceType, targetType, converter);
+            this.primitive = targetType.getType().isPrimitive();
+        }
+
+        @Override
+        public void inject(Object instance, String content) {
+            float value;
+            try {
+                value = Float.parseFloat(content.trim());
+            } catch (NumberFormatException e) {
+                fallback(instance, content);
+                return;
+            }
+            if (primitive) {
+                accessor.setFloat(instance, value);
+            } else {
+                accessor.set(instance, value);
+            }
+        }
+
+        @Override
+        public void injectNumber(Object instance, double value, boolean integral) {
+            if (primitive) {
+                accessor.setFloat(instance, (float) value);
+            } else {
+                accessor.set(instance, (float) value);
+            }
+        }
+    }
+
+    private static class DoubleCodec extends ScalarCodec {
+        private final boolean primitive;
+
+        DoubleCodec(FieldAccessor accessor, TypeDescriptor sourceType, TypeDescriptor targetType, GenericConverter converter) {
+            super(accessor, sourceType, targetType, converter);
+            this.primitive = targetType.getType().isPrimitive();
+        }
+
+        @Override
+        public void inject(Object instance, String content) {
+            double value;
+            try {
+                value = Double.parseDouble(content.trim());
+            } catch (NumberFormatException e) {
+                fallback(instance, content);
+                return;
+            }
+            if (primitive) {
+                accessor.setDouble(instance, value);
+            } else {
+                accessor.set(instance, value);
+            }
+        }
+
+        @Override
+        public void injectNumber(Object instance, double value, boolean integral) {
+            if (primitive) {
+                accessor.setDouble(instance, value);
+            } else {
+                accessor.set(instance, value);
+            }
+        }
+    }
+
+    /**
+     * 和Spring的StringToBooleanConverter一样，支持true/false，on/off，yes/no，1/0
+     */
+    private static class BooleanCodec extends ScalarCodec {
+        private final boolean primitive;
+
+        BooleanCodec(FieldAccessor accessor, TypeDescriptor sourceType, TypeDescriptor targetType, GenericConverter converter) {
+            super(accessor, sourceType, targetType, converter);
+            this.primitive = targetType.getType().isPrimitive();
+        }
+
+        @Override
+        public void inject(Object instance, String content) {
+            boolean value;
+            var trimmed = content.trim();
+            if ("true".equalsIgnoreCase(trimmed) || "1".equals(trimmed) || "on".equalsIgnoreCase(trimmed) || "yes".equalsIgnoreCase(trimmed)) {
+                value = true;
+            } else if ("false".equalsIgnoreCase(trimmed) || "0".equals(trimmed) || "off".equalsIgnoreCase(trimmed) || "no".equalsIgnoreCase(trimmed)) {
+                value = false;
+            } else {
+                fallback(instance, content);
+                return;
+            }
+            if (primitive) {
+                accessor.setBoolean(instance, value);
+            } else {
+                accessor.set(instance, value);
+            }
+        }
+
+        @Override
+        public void injectBoolean(Object instance, boolean value) {
+            if (primitive) {
+                accessor.setBoolean(instance, value);
+            } else {
+                accessor.set(instance, value);
+            }
+        }
+    }
+
+    private static class EnumCodec extends ScalarCodec {
+        private final Map<String, Object> enumMap = new HashMap<>();
+
+        EnumCodec(FieldAccessor accessor, TypeDescriptor sourceType, TypeDescriptor targetType, GenericConverter converter, Class<?> enumClazz) {
+            super(accessor, sourceType, targetType, converter);
+            for (var constant : enumClazz.getEnumConstants()) {
+                enumMap.put(((Enum<?>) constant).name(), constant);
+            }
+        }
+
+        @Override
+        public void inject(Object instance, String content) {
+            var value = enumMap.get(content.trim());
+            if (value == null) {
+                fallback(instance, content);
+                return;
+            }
+            accessor.set(instance, value);
+        }
+    }
+
+    /**
+     * 和StringToDateConverter的格式一样，使用系统的时区
+     */
+    private static class DateCodec extends ScalarCodec {
+        private final ZoneId zoneId = ZoneId.systemDefault();
+
+        DateCodec(FieldAccessor accessor, TypeDescriptor sourceType, TypeDescriptor targetType, GenericConverter converter) {
+            super(accessor, sourceType, targetType, converter);
+        }
+
+        @Override
+        public void inject(Object instance, String content) {
+            Date value;
+            try {
+                value = Date.from(LocalDateTime.parse(content, DATE_FORMATTER).atZone(zoneId).toInstant());
+            } catch (DateTimeParseException e) {
+                fallback(instance, content);
+                return;
+            }
+            accessor.set(instance, value);
+        }
+
+        @Override
+        public void injectDate(Object instance, Date value) {
+            accessor.set(instance, value);
+        }
+    }
+
+    private static class LocalDateTimeCodec extends ScalarCodec {
+        LocalDateTimeCodec(FieldAccessor accessor, TypeDescriptor sourceType, TypeDescriptor targetType, GenericConverter converter) {
+            super(accessor, sourceType, targetType, converter);
+        }
+
+        @Override
+        public void inject(Object instance, String content) {
+            var trimmed = content.trim();
+            LocalDateTime value;
+            try {
+                value = LocalDateTime.parse(trimmed, DATE_FORMATTER);
+            } catch (DateTimeParseException e) {
+                try {
+                    value = LocalDateTime.parse(trimmed, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+                } catch (DateTimeParseException ex) {
+                    fallback(instance, content);
+                    return;
+                }
+            }
+            accessor.set(instance, value);
+        }
+
+        @Override
+        public void injectDate(Object instance, Date value) {
+            accessor.set(instance, LocalDateTime.ofInstant(value.toInstant(), ZoneId.systemDefault()));
+        }
+    }
+
+    private static class LocalDateCodec extends ScalarCodec {
+        LocalDateCodec(FieldAccessor accessor, TypeDescriptor sourceType, TypeDescriptor targetType, GenericConverter converter) {
+            super(accessor, sourceType, targetType, converter);
+        }
+
+        @Override
+        public void inject(Object instance, String content) {
+            LocalDate value;
+            try {
+                value = LocalDate.parse(content.trim(), DateTimeFormatter.ISO_LOCAL_DATE);
+            } catch (DateTimeParseException e) {
+                fallback(instance, content);
+                return;
+            }
+            accessor.set(instance, value);
+        }
+
+        @Override
+        public void injectDate(Object instance, Date value) {
+            accessor.set(instance, LocalDate.ofInstant(value.toInstant(), ZoneId.systemDefault()));
+        }
+    }
+
+    private static class LocalTimeCodec extends ScalarCodec {
+        LocalTimeCodec(FieldAccessor accessor, TypeDescriptor sourceType, TypeDescriptor targetType, GenericConverter converter) {
+            super(accessor, sourceType, targetType, converter);
+        }
+
+        @Override
+        public void inject(Object instance, String content) {
+            LocalTime value;
+            try {
+                value = LocalTime.parse(content.trim(), DateTimeFormatter.ISO_LOCAL_TIME);
+            } catch (DateTimeParseException e) {
+                fallback(instance, content);
+                return;
+            }
+            accessor.set(instance, value);
+        }
+    }
+
+}
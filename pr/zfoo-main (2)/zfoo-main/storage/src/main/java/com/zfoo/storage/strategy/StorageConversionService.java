@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.strategy;
+
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.converter.GenericConverter;
+import org.springframework.core.convert.support.ConversionServiceFactory;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.lang.Nullable;
+
+import java.util.HashSet;
+
+/**
+ * 配置表使用的类型转换服务，在DefaultConversionService的基础上注册了storage自己的转换器
+ * <p>
+ * 额外暴露了getConverter，可以在读取表头时为每个属性确定好转换器，之后每个单元格直接调用，不需要再匹配转换器
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class StorageConversionService extends DefaultConversionService {
+
+    public StorageConversionService() {
+        var converters = new HashSet<>();
+        converters.add(new JsonToArrayConverter());
+        converters.add(new JsonToListConverter());
+        converters.add(new JsonToMapConverter());
+        converters.add(new JsonToObjectConverter());
+        converters.add(new StringToClassConverter());
+        converters.add(new StringToDateConverter());
+        converters.add(new StringToMapConverter());
+        ConversionServiceFactory.registerConverters(converters, this);
+    }
+
+    /**
+     * 找到sourceType到targetType的转换器，类型可以直接赋值时返回的是不做任何转换的转换器
+     *
+     * @return 没有可用的转换器时返回null
+     */
+    @Nullable
+    public GenericConverter findConverter(TypeDescriptor sourceType, TypeDescriptor targetType) {
+        return getConverter(sourceType, targetType);
+    }
+
+}
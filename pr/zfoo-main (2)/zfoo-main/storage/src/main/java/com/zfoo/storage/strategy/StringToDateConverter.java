@@ -18,6 +18,9 @@ import org.springframework.core.convert.converter.Converter;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.util.Date;
 
 /**
@@ -29,7 +32,13 @@ public class StringToDateConverter implements Converter<String, Date> {
 
     @Override
     public Date convert(String source) {
-        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        try {
+            return Date.from(LocalDateTime.parse(source, ScalarCodec.DATE_FORMATTER).atZone(ZoneId.systemDefault()).toInstant());
+        } catch (DateTimeParseException e) {
+            // 格式不严格匹配的时候使用SimpleDateFormat宽松的解析规则，和之前保持一致
+        }
+
+        SimpleDateFormat df = new SimpleDateFormat(ScalarCodec.DATE_PATTERN);
 
         try {
             return df.parse(source);
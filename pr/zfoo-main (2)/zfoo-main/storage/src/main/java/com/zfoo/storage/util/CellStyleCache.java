@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.util;
+
+import com.zfoo.protocol.util.StringUtils;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DateUtil;
+
+import java.util.Arrays;
+
+/**
+ * 按单元格样式的序号缓存数字格式的分类，同一个样式的单元格只需要判断一次是否为日期格式，是否有小数部分
+ * <p>
+ * 分类规则和CellUtils.getCellValue保持一致，只在读取一张表的时候使用，不是线程安全的
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class CellStyleCache {
+
+    // 日期格式，值也是合法的Excel日期时才当作日期处理
+    public static final int DATE = 1;
+    // 格式中没有小数部分，值为整数时当作整数处理
+    public static final int INTEGRAL = 1 << 1;
+
+    private static final byte CLASSIFIED = 1 << 2;
+
+    private byte[] styleFlags = new byte[64];
+
+    /**
+     * @return 还没有缓存时返回-1
+     */
+    public int flags(int styleIndex) {
+        if (styleIndex < 0 || styleIndex >= styleFlags.length) {
+            return -1;
+        }
+        var flags = styleFlags[styleIndex];
+        return (flags & CLASSIFIED) == 0 ? -1 : flags & ~CLASSIFIED;
+    }
+
+    public int put(int styleIndex, CellStyle style) {
+        var flags = classify(style);
+        if (styleIndex >= 0) {
+            if (styleIndex >= styleFlags.length) {
+                styleFlags = Arrays.copyOf(styleFlags, Math.max(styleIndex + 1, styleFlags.length * 2));
+            }
+            styleFlags[styleIndex] = (byte) (flags | CLASSIFIED);
+        }
+        return flags;
+    }
+
+    public static int classify(CellStyle style) {
+        if (style == null) {
+            return 0;
+        }
+        var flags = 0;
+        var format = style.getDataFormatString();
+        if (DateUtil.isADateFormat(style.getDataFormat(), format)) {
+            flags |= DATE;
+        }
+        if (null != format && !format.contains(StringUtils.PERIOD)) {
+            flags |= INTEGRAL;
+        }
+        return flags;
+    }
+
+}
@@ -17,12 +17,16 @@ import com.zfoo.protocol.util.FileUtils;
 import com.zfoo.protocol.util.JsonUtils;
 import com.zfoo.protocol.util.ReflectionUtils;
 import com.zfoo.protocol.util.StringUtils;
+import com.zfoo.storage.interpreter.BinaryWriter;
 import com.zfoo.storage.interpreter.CsvReader;
 import com.zfoo.storage.interpreter.ExcelReader;
 import com.zfoo.storage.model.resource.ResourceEnum;
 import com.zfoo.storage.model.vo.Storage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.lang.reflect.ParameterizedType;
 import java.util.HashSet;
@@ -36,6 +40,8 @@ import java.util.stream.Collectors;
  */
 public abstract class ExportUtils {
 
+    private static final Logger logger = LoggerFactory.getLogger(ExportUtils.class);
+
     public static void excel2json(String inputDir, String outputDir) throws IOException {
         var excelFiles = scanExcelFiles(inputDir);
         for (var excel : excelFiles) {
@@ -79,6 +85,31 @@ public abstract class ExportUtils {
         }
     }
 
+    /**
+     * 把已经加载好的配置表导出为二进制快照，线上服务器直接读取快照启动，不需要再解析Excel，csv，json
+     * <p>
+     * 已经被回收的配置表在当前项目中没有使用，数据已经被清除，直接跳过；需要导出全部配置表的时候关闭recycle
+     * <p>
+     * 快照和原来的配置表在同一个资源目录中的时候优先使用原来的配置表，线上服务器只部署快照，或者把快照导出到单独的资源目录
+     * <p>
+     * 每个资源类导出一个{SimpleName}.bin，配置了workbook的资源类也一样，找不到workbook的Excel文件的时候加载资源类自己的快照
+     */
+    public static void storage2binary(Map<Class<?>, Storage<?, ?>> storageMap, String outputDir) throws IOException {
+        for (var entry : storageMap.entrySet()) {
+            var clazz = entry.getKey();
+            if (entry.getValue().isRecycled()) {
+                logger.warn("资源类[class:{}]已经被回收，没有导出二进制快照", clazz.getSimpleName());
+                continue;
+            }
+            var outputFile = new File(FileUtils.joinPath(outputDir, StringUtils.format("{}.{}", clazz.getSimpleName(), ResourceEnum.BINARY.getType())));
+            FileUtils.deleteFile(outputFile);
+            outputFile.getParentFile().mkdirs();
+            try (var outputStream = new FileOutputStream(outputFile)) {
+                BinaryWriter.write(clazz, entry.getValue(), outputStream);
+            }
+        }
+    }
+
     public static List<File> scanExcelFiles(String inputDir) {
         return FileUtils.getAllReadableFiles(new File(inputDir))
                 .stream()
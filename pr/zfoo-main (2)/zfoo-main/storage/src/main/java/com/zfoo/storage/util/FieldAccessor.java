@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.util;
+
+import com.zfoo.protocol.exception.RunException;
+import com.zfoo.protocol.util.ReflectionUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 属性的读写器，在第一次使用时生成MethodHandle，之后读写属性不再经过反射的访问检查和参数包装
+ * <p>
+ * 同一个属性的读写器会被缓存，重新加载配置表时直接复用
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class FieldAccessor {
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final Map<Field, FieldAccessor> accessorMap = new ConcurrentHashMap<>();
+
+    private final Field field;
+    private final MethodHandle setter;
+    private final MethodHandle getter;
+    // 基本类型属性的setter，类型为(Object, 基本类型)void，赋值时不需要装箱；不是基本类型时为null
+    private final MethodHandle primitiveSetter;
+
+    private FieldAccessor(Field field, MethodHandle setter, MethodHandle getter, MethodHandle primitiveSetter) {
+        this.field = field;
+        this.setter = setter;
+        this.getter = getter;
+        this.primitiveSetter = primitiveSetter;
+    }
+
+    public static FieldAccessor valueOf(Field field) {
+        return accessorMap.computeIfAbsent(field, it -> create(it));
+    }
+
+    private static FieldAccessor create(Field field) {
+        ReflectionUtils.makeAccessible(field);
+        try {
+            var lookup = MethodHandles.lookup();
+            // 统一适配为(Object, Object)void和(Object)Object，基本类型在这里拆箱和装箱
+            var rawSetter = lookup.unreflectSetter(field);
+            var setter = rawSetter.asType(SETTER_TYPE);
+            var getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+            var primitiveSetter = field.getType().isPrimitive()
+                    ? rawSetter.asType(MethodType.methodType(void.class, Object.class, field.getType()))
+                    : null;
+            return new FieldAccessor(field, setter, getter, primitiveSetter);
+        } catch (IllegalAccessException e) {
+            throw new RunException(e, "无法生成类[{}]的属性[field:{}]的读写器", field.getDeclaringClass().getName(), field.getName());
+        }
+    }
+
+    public void set(Object instance, Object value) {
+        try {
+            setter.invokeExact(instance, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw setException(t);
+        }
+    }
+
+    public void setInt(Object instance, int value) {
+        try {
+            primitiveSetter.invokeExact(instance, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw setException(t);
+        }
+    }
+
+    public void setLong(Object instance, long value) {
+        try {
+            primitiveSetter.invokeExact(instance, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw setException(t);
+        }
+    }
+
+    public void setShort(Object instance, short value) {
+        try {
+            primitiveSetter.invokeExact(instance, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw setException(t);
+        }
+    }
+
+    public void setByte(Object instance, byte value) {
+        try {
+            primitiveSetter.invokeExact(instance, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw setException(t);
+        }
+    }
+
+    public void setFloat(Object instance, float value) {
+        try {
+            primitiveSetter.invokeExact(instance, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw setException(t);
+        }
+    }
+
+    public void setDouble(Object instance, double value) {
+        try {
+            primitiveSetter.invokeExact(instance, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw setException(t);
+        }
+    }
+
+    public void setBoolean(Object instance, boolean value) {
+        try {
+            primitiveSetter.invokeExact(instance, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw setException(t);
+        }
+    }
+
+    private RunException setException(Throwable t) {
+        return new RunException(t, "类[{}]的属性[field:{}]赋值异常", field.getDeclaringClass().getName(), field.getName());
+    }
+
+    public Object get(Object instance) {
+        try {
+            return (Object) getter.invokeExact(instance);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RunException(t, "类[{}]的属性[field:{}]取值异常", field.getDeclaringClass().getName(), field.getName());
+        }
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.util;
+
+import com.zfoo.protocol.exception.RunException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 资源类的构造器，和FieldAccessor一样按类缓存，配置表每一行创建对象时不再经过反射
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class ResourceAccessor<T> {
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+    private static final Map<Class<?>, ResourceAccessor<?>> accessorMap = new ConcurrentHashMap<>();
+
+    private final Class<T> clazz;
+    private final MethodHandle constructor;
+
+    private ResourceAccessor(Class<T> clazz, MethodHandle constructor) {
+        this.clazz = clazz;
+        this.constructor = constructor;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> ResourceAccessor<T> valueOf(Class<T> clazz) {
+        return (ResourceAccessor<T>) accessorMap.computeIfAbsent(clazz, it -> create(it));
+    }
+
+    private static <T> ResourceAccessor<T> create(Class<T> clazz) {
+        try {
+            var constructor = clazz.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            var handle = MethodHandles.lookup().unreflectConstructor(constructor).asType(CONSTRUCTOR_TYPE);
+            return new ResourceAccessor<>(clazz, handle);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new RunException(e, "资源类[{}]必须有一个无参构造器", clazz.getName());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public T newInstance() {
+        try {
+            return (T) (Object) constructor.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RunException(t, "资源类[{}]无法实例化", clazz.getName());
+        }
+    }
+
+}
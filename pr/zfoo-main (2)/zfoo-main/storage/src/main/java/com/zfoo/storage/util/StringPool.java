@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.util;
+
+import com.zfoo.protocol.util.ReflectionUtils;
+
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 加载配置表时使用的字符串常量池，内容相同的字符串在最终的资源对象中只保留一个实例
+ * <p>
+ * 只在加载期间存在，加载完成后整个池子就可以被回收，不会像String.intern()那样一直占用内存；并发加载时可以多个线程共用
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class StringPool {
+
+    // 不做任何去重的池子，给按需解码的场景使用，避免池子随着解码的次数一直增长
+    public static final StringPool NONE = new StringPool(null);
+
+    // json转换出来的对象中需要替换的属性，基本类型和final的属性不需要
+    private static final Map<Class<?>, FieldAccessor[]> objectFieldMap = new ConcurrentHashMap<>();
+
+    private final Map<String, String> pool;
+
+    public StringPool() {
+        this(new ConcurrentHashMap<>());
+    }
+
+    private StringPool(Map<String, String> pool) {
+        this.pool = pool;
+    }
+
+    public String intern(String value) {
+        if (value == null || pool == null) {
+            return value;
+        }
+        var existing = pool.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        existing = pool.putIfAbsent(value, value);
+        return existing == null ? value : existing;
+    }
+
+    /**
+     * 把转换出来的属性值中的字符串替换为池子中的实例，支持数组，List，Set和Map的元素，以及json转换出来的对象的属性；jdk中的其它对象原样返回
+     *
+     * @return 替换后的属性值，不可修改的List会返回一个新的不可修改的List
+     */
+    @SuppressWarnings("unchecked")
+    public Object internValue(Object value) {
+        if (pool == null) {
+            return value;
+        }
+        if (value instanceof String) {
+            return intern((String) value);
+        }
+        if (value instanceof Object[]) {
+            var array = (Object[]) value;
+            for (var i = 0; i < array.length; i++) {
+                array[i] = internValue(array[i]);
+            }
+        } else if (value instanceof List) {
+            var list = (List<Object>) value;
+            try {
+                var iterator = list.listIterator();
+                while (iterator.hasNext()) {
+                    iterator.set(internValue(iterator.next()));
+                }
+            } catch (UnsupportedOperationException e) {
+                // 转换器返回的是不可修改的List，复制一份同样不可修改的List
+                var copy = new ArrayList<>(list.size());
+                for (var element : list) {
+                    copy.add(internValue(element));
+                }
+                return Collections.unmodifiableList(copy);
+            }
+        } else if (value instanceof HashSet || value instanceof TreeSet) {
+            // 重新放入同一个set，保持原来的类型和顺序
+            var set = (Set<Object>) value;
+            var elements = new ArrayList<>(set.size());
+            for (var element : set) {
+                elements.add(internValue(element));
+            }
+            set.clear();
+            set.addAll(elements);
+        } else if (value instanceof HashMap || value instanceof TreeMap) {
+            // 重新放入同一个map，保持原来的类型和顺序
+            var map = (Map<Object, Object>) value;
+            var entries = new ArrayList<>(map.entrySet().size());
+            for (var entry : map.entrySet()) {
+                entries.add(internValue(entry.getKey()));
+                entries.add(internValue(entry.getValue()));
+            }
+            map.clear();
+            for (var i = 0; i < entries.size(); i += 2) {
+                map.put(entries.get(i), entries.get(i + 1));
+            }
+        } else if (value != null && isObject(value.getClass())) {
+            for (var accessor : objectFields(value.getClass())) {
+                var fieldValue = accessor.get(value);
+                var internedValue = internValue(fieldValue);
+                if (internedValue != fieldValue) {
+                    accessor.set(value, internedValue);
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * json转换出来的项目中的对象，jdk中的类型，枚举和包装类型不需要处理
+     */
+    private static boolean isObject(Class<?> clazz) {
+        return !clazz.isArray() && !clazz.isEnum() && !clazz.getName().startsWith("java.") && !clazz.getName().startsWith("javax.");
+    }
+
+    private static FieldAccessor[] objectFields(Class<?> clazz) {
+        return objectFieldMap.computeIfAbsent(clazz, it -> ReflectionUtils.notStaticAndTransientFields(it).stream()
+                .filter(field -> !field.getType().isPrimitive() && !Modifier.isFinal(field.getModifiers()))
+                .map(FieldAccessor::valueOf)
+                .toArray(FieldAccessor[]::new));
+    }
+
+    public int size() {
+        return pool == null ? 0 : pool.size();
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.cache;
+
+import com.zfoo.storage.interpreter.ResourceInterpreter;
+import com.zfoo.storage.manager.StorageCache;
+import com.zfoo.storage.model.anno.Id;
+import com.zfoo.storage.model.vo.Storage;
+import com.zfoo.storage.resource.StudentResource;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import javax.tools.ToolProvider;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * 配置文件的内容和资源类的结构都没有改变的时候命中缓存，任意一个改变了都会得到新的缓存文件
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class StorageCacheTest {
+
+    private static final String FILE = "excel/StudentResource.xlsx";
+
+    private static final String SCHEMA_CLASS = "com.zfoo.storage.cache.schema.CacheSchemaResource";
+
+    private static final String SCHEMA_SOURCE = "package com.zfoo.storage.cache.schema;\n"
+            + "public class CacheSchemaResource {\n"
+            + "    @com.zfoo.storage.model.anno.Id\n"
+            + "    private int id;\n"
+            + "    private String name;\n"
+            + "    {}\n"
+            + "}\n";
+
+    @Test
+    public void cacheHitTest() throws IOException {
+        var cacheDir = Files.createTempDirectory("storage-cache");
+        try {
+            var cache = new StorageCache(cacheDir.toString());
+            var content = new ClassPathResource(FILE).getInputStream().readAllBytes();
+
+            var cacheFile = cache.cacheFile(StudentResource.class, content);
+            Assert.assertEquals(cacheFile, cache.cacheFile(StudentResource.class, content.clone()));
+            Assert.assertTrue(cacheFile.getName().startsWith(StudentResource.class.getName() + "."));
+            Assert.assertFalse(cacheFile.exists());
+
+            var storage = new Storage<Integer, StudentResource>();
+            storage.init(new ByteArrayInputStream(content), StudentResource.class, "xlsx");
+            cache.write(StudentResource.class, storage, cacheFile);
+            Assert.assertTrue(cacheFile.exists());
+
+            // 缓存中读取出来的数据和直接解析Excel的一致
+            try (var input = new FileInputStream(cacheFile)) {
+                var cached = ResourceInterpreter.read(input, StudentResource.class, "bin");
+                Assert.assertEquals(storage.size(), cached.size());
+                for (var resource : cached) {
+                    var expected = storage.get(resource.getId());
+                    Assert.assertEquals(expected.getName(), resource.getName());
+                    Assert.assertEquals(expected.getAge(), resource.getAge());
+                    Assert.assertArrayEquals(expected.getCourses(), resource.getCourses());
+                }
+            }
+
+            // 文件内容改变之后是新的缓存文件，写入新的缓存之后旧的缓存被删除
+            var changedContent = Arrays.copyOf(content, content.length + 1);
+            var changedCacheFile = cache.cacheFile(StudentResource.class, changedContent);
+            Assert.assertNotEquals(cacheFile, changedCacheFile);
+            cache.write(StudentResource.class, storage, changedCacheFile);
+            Assert.assertTrue(changedCacheFile.exists());
+            Assert.assertFalse(cacheFile.exists());
+            Assert.assertEquals(1, cacheDir.toFile().list().length);
+        } finally {
+            delete(cacheDir);
+        }
+    }
+
+    @Test
+    public void schemaChangeTest() throws Exception {
+        var dir = Files.createTempDirectory("storage-schema");
+        try {
+            var cache = new StorageCache(dir.resolve("cache").toString());
+            var content = new byte[]{1, 2, 3};
+
+            // 同一个类名的两个版本，第二个版本多了一个属性
+            var oldClazz = compile(dir.resolve("v1"), SCHEMA_SOURCE.replace("{}", ""));
+            var sameClazz = compile(dir.resolve("v2"), SCHEMA_SOURCE.replace("{}", ""));
+            var newClazz = compile(dir.resolve("v3"), SCHEMA_SOURCE.replace("{}", "private int level;"));
+            Assert.assertEquals(oldClazz.getName(), newClazz.getName());
+            Assert.assertNotSame(oldClazz, newClazz);
+
+            Assert.assertEquals(cache.cacheFile(oldClazz, content), cache.cacheFile(sameClazz, content));
+            Assert.assertNotEquals(cache.cacheFile(oldClazz, content), cache.cacheFile(newClazz, content));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    private static Class<?> compile(Path dir, String source) throws Exception {
+        var sourceFile = dir.resolve("CacheSchemaResource.java");
+        Files.createDirectories(dir);
+        Files.writeString(sourceFile, source);
+        var classpath = Paths.get(Id.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        var result = ToolProvider.getSystemJavaCompiler().run(null, null, null, "-cp", classpath, "-d", dir.toString(), sourceFile.toString());
+        Assert.assertEquals(0, result);
+        var classLoader = new URLClassLoader(new URL[]{dir.toUri().toURL()}, StorageCacheTest.class.getClassLoader());
+        return classLoader.loadClass(SCHEMA_CLASS);
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (var paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+}
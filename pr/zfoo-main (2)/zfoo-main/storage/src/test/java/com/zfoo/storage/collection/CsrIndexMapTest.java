@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.collection;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CSR格式的非唯一索引，每个key对应rows中一段连续的只读视图
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class CsrIndexMapTest {
+
+    private static Map<Object, List<String>> createIndex() {
+        var index = new LinkedHashMap<Object, List<String>>();
+        index.put("a", List.of("a0", "a1", "a2"));
+        index.put(1, List.of("one"));
+        index.put(null, List.of("null0", "null1"));
+        index.put("empty", List.of());
+        index.put("b", new ArrayList<>(List.of("b0", "b1")));
+        return index;
+    }
+
+    @Test
+    public void sliceTest() {
+        var index = createIndex();
+        var csrIndex = CsrIndexMap.valueOf(index);
+        Assert.assertEquals(index.size(), csrIndex.size());
+        Assert.assertEquals(index, csrIndex);
+        Assert.assertEquals(List.of("a0", "a1", "a2"), csrIndex.get("a"));
+        Assert.assertEquals(List.of("one"), csrIndex.get(1));
+        Assert.assertEquals(List.of("b0", "b1"), csrIndex.get("b"));
+        Assert.assertEquals(List.of(), csrIndex.get("empty"));
+        Assert.assertTrue(csrIndex.containsKey("empty"));
+
+        var slice = csrIndex.get("a");
+        Assert.assertEquals(3, slice.size());
+        Assert.assertEquals("a2", slice.get(2));
+        Assert.assertEquals(List.of("a1", "a2"), slice.subList(1, 3));
+        Assert.assertEquals(List.of("a0", "a1", "a2").hashCode(), slice.hashCode());
+        // 不能越界读取到相邻key的数据
+        try {
+            slice.get(3);
+            Assert.fail();
+        } catch (IndexOutOfBoundsException e) {
+        }
+        try {
+            slice.get(-1);
+            Assert.fail();
+        } catch (IndexOutOfBoundsException e) {
+        }
+
+        // 遍历顺序和原来的Map一致
+        Assert.assertEquals(new ArrayList<>(index.keySet()), new ArrayList<>(csrIndex.keySet()));
+    }
+
+    @Test
+    public void nullKeyTest() {
+        var csrIndex = CsrIndexMap.valueOf(createIndex());
+        Assert.assertTrue(csrIndex.containsKey(null));
+        Assert.assertEquals(List.of("null0", "null1"), csrIndex.get(null));
+        Assert.assertNull(csrIndex.get("absent"));
+        Assert.assertNull(csrIndex.get(2));
+        Assert.assertFalse(csrIndex.containsKey("absent"));
+    }
+
+    @Test
+    public void immutableTest() {
+        var index = createIndex();
+        var csrIndex = CsrIndexMap.valueOf(index);
+        // 构建之后修改原来的List不影响索引
+        index.get("b").add("b2");
+        Assert.assertEquals(List.of("b0", "b1"), csrIndex.get("b"));
+
+        var slice = csrIndex.get("a");
+        try {
+            slice.add("a3");
+            Assert.fail();
+        } catch (UnsupportedOperationException e) {
+        }
+        try {
+            slice.set(0, "x");
+            Assert.fail();
+        } catch (UnsupportedOperationException e) {
+        }
+        try {
+            slice.remove(0);
+            Assert.fail();
+        } catch (UnsupportedOperationException e) {
+        }
+        try {
+            csrIndex.put("c", List.of("c0"));
+            Assert.fail();
+        } catch (UnsupportedOperationException e) {
+        }
+        try {
+            csrIndex.remove("a");
+            Assert.fail();
+        } catch (UnsupportedOperationException e) {
+        }
+        Assert.assertEquals(List.of("a0", "a1", "a2"), csrIndex.get("a"));
+    }
+
+    @Test
+    public void emptyTest() {
+        var csrIndex = CsrIndexMap.<String>valueOf(Map.of());
+        Assert.assertEquals(0, csrIndex.size());
+        Assert.assertNull(csrIndex.get("a"));
+        Assert.assertNull(csrIndex.get(null));
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.collection;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * 连续int主键的DenseArrayMap，遍历的顺序和IntObjectMap一样是插入的顺序，不是id的顺序
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class DenseArrayMapTest {
+
+    private static final int SIZE = 1000;
+
+    // 负数的id，打乱插入的顺序
+    private static final int MIN_ID = -100;
+
+    @Test
+    public void iterationOrderTest() {
+        var ids = new ArrayList<Integer>();
+        for (var i = 0; i < SIZE; i++) {
+            ids.add(MIN_ID + i);
+        }
+        Collections.shuffle(ids, new Random(7));
+
+        var intMap = new IntObjectMap<String>();
+        for (var id : ids) {
+            intMap.put(id, "v" + id);
+        }
+        var map = DenseArrayMap.valueOf(intMap, 0.5F);
+        Assert.assertNotNull(map);
+        Assert.assertEquals(SIZE, map.size());
+        Assert.assertEquals(intMap, map);
+
+        // keySet，values，entrySet都按插入的顺序遍历
+        Assert.assertEquals(ids, new ArrayList<>(map.keySet()));
+        Assert.assertEquals(new ArrayList<>(intMap.keySet()), new ArrayList<>(map.keySet()));
+        Assert.assertEquals(new ArrayList<>(intMap.values()), new ArrayList<>(map.values()));
+        var index = 0;
+        for (var entry : map.entrySet()) {
+            Assert.assertEquals(ids.get(index), entry.getKey());
+            Assert.assertEquals("v" + ids.get(index), entry.getValue());
+            index++;
+        }
+        Assert.assertEquals(SIZE, index);
+
+        for (var id : ids) {
+            Assert.assertEquals("v" + id, map.get((int) id));
+            Assert.assertEquals("v" + id, map.get((long) id));
+            Assert.assertEquals("v" + id, map.get(Integer.valueOf(id)));
+            Assert.assertTrue(map.containsKey((int) id));
+        }
+        Assert.assertNull(map.get(MIN_ID - 1));
+        Assert.assertNull(map.get(MIN_ID + SIZE));
+        Assert.assertNull(map.get(Integer.MIN_VALUE));
+        Assert.assertNull(map.get(Integer.MAX_VALUE));
+        Assert.assertNull(map.get(Long.MAX_VALUE));
+        Assert.assertNull(map.get((Object) Long.valueOf(MIN_ID)));
+        Assert.assertFalse(map.containsKey(MIN_ID + SIZE));
+    }
+
+    @Test
+    public void fillFactorTest() {
+        // 填充率为一半
+        var intMap = new IntObjectMap<String>();
+        for (var i = 0; i < SIZE; i++) {
+            intMap.put(i * 2, "v" + i);
+        }
+        Assert.assertNotNull(DenseArrayMap.valueOf(intMap, 0.5F));
+        Assert.assertNull(DenseArrayMap.valueOf(intMap, 0.6F));
+        Assert.assertNull(DenseArrayMap.valueOf(intMap, 0));
+        Assert.assertNull(DenseArrayMap.valueOf(new IntObjectMap<String>(), 0.5F));
+
+        // 最小和最大的id相差太大
+        var sparseMap = new IntObjectMap<String>();
+        sparseMap.put(Integer.MIN_VALUE, "min");
+        sparseMap.put(Integer.MAX_VALUE, "max");
+        Assert.assertNull(DenseArrayMap.valueOf(sparseMap, 0.5F));
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.collection;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * 开放寻址的IntObjectMap，LongObjectMap，StringObjectMap的put，get，扩容和trimToSize
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class OpenHashingMapTest {
+
+    private static final int SIZE = 10000;
+
+    @Test
+    public void intObjectMapTest() {
+        // 默认容量很小，put的过程中会多次扩容；key的低位全部相同，测试探测
+        var map = new IntObjectMap<String>();
+        var expected = new HashMap<Integer, String>();
+        for (var i = 0; i < SIZE; i++) {
+            var key = (i - SIZE / 2) << 16;
+            Assert.assertNull(map.put(key, "v" + i));
+            expected.put(key, "v" + i);
+        }
+        Assert.assertEquals(SIZE, map.size());
+        Assert.assertEquals(expected, map);
+        for (var i = 0; i < SIZE; i++) {
+            var key = (i - SIZE / 2) << 16;
+            Assert.assertEquals("v" + i, map.get(key));
+            Assert.assertEquals("v" + i, map.get(Integer.valueOf(key)));
+            Assert.assertTrue(map.containsKey(key));
+        }
+        Assert.assertNull(map.get(1));
+        Assert.assertNull(map.get(Long.valueOf(0)));
+        Assert.assertFalse(map.containsKey(1));
+
+        // 覆盖已经存在的key不改变大小和顺序
+        Assert.assertEquals("v0", map.put(-SIZE / 2 << 16, "new"));
+        Assert.assertEquals(SIZE, map.size());
+        Assert.assertEquals("new", map.values().iterator().next());
+
+        map.trimToSize();
+        Assert.assertEquals(SIZE, map.size());
+        Assert.assertEquals("v1", map.get((1 - SIZE / 2) << 16));
+        // trimToSize之后继续put会重新扩容
+        map.put(1, "one");
+        Assert.assertEquals("one", map.get(1));
+        Assert.assertEquals(SIZE + 1, map.size());
+
+        map.clear();
+        Assert.assertEquals(0, map.size());
+        Assert.assertNull(map.get(1));
+        map.put(1, "one");
+        Assert.assertEquals("one", map.get(1));
+    }
+
+    @Test
+    public void longObjectMapTest() {
+        var map = new LongObjectMap<String>(1);
+        var keys = new ArrayList<Long>();
+        for (var i = 0; i < SIZE; i++) {
+            // 高32位不同，低32位相同，哈希的时候高位也需要参与
+            var key = (long) (i + 1) << 32 | 7;
+            keys.add(key);
+            Assert.assertNull(map.put(key, "v" + i));
+        }
+        Assert.assertEquals(SIZE, map.size());
+        for (var i = 0; i < SIZE; i++) {
+            Assert.assertEquals("v" + i, map.get(keys.get(i).longValue()));
+            Assert.assertEquals("v" + i, map.get(keys.get(i)));
+        }
+        Assert.assertNull(map.get(7L));
+        Assert.assertNull(map.get(Integer.valueOf(7)));
+        // 遍历顺序是插入顺序
+        Assert.assertEquals(keys, new ArrayList<>(map.keySet()));
+
+        map.trimToSize();
+        Assert.assertEquals(keys, new ArrayList<>(map.keySet()));
+        map.put(Long.MIN_VALUE, "min");
+        Assert.assertEquals("min", map.get(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void stringObjectMapTest() {
+        var map = new StringObjectMap<Integer>();
+        var keys = new ArrayList<String>();
+        for (var i = 0; i < SIZE; i++) {
+            keys.add("key" + i);
+            Assert.assertNull(map.put("key" + i, i));
+        }
+        // hashCode相同的key
+        Assert.assertNull(map.put("Aa", -1));
+        Assert.assertNull(map.put("BB", -2));
+        keys.add("Aa");
+        keys.add("BB");
+
+        Assert.assertEquals(SIZE + 2, map.size());
+        for (var i = 0; i < SIZE; i++) {
+            Assert.assertEquals(Integer.valueOf(i), map.get("key" + i));
+        }
+        Assert.assertEquals(Integer.valueOf(-1), map.get("Aa"));
+        Assert.assertEquals(Integer.valueOf(-2), map.get("BB"));
+        Assert.assertNull(map.get("Ab"));
+        Assert.assertNull(map.get(1));
+        Assert.assertNull(map.get(null));
+        Assert.assertEquals(keys, new ArrayList<>(map.keySet()));
+
+        map.trimToSize();
+        Assert.assertEquals(keys, new ArrayList<>(map.keySet()));
+        Assert.assertEquals(Integer.valueOf(-2), map.get("BB"));
+        map.put("new", 0);
+        Assert.assertEquals(Integer.valueOf(0), map.get("new"));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullValueTest() {
+        new IntObjectMap<String>().put(1, null);
+    }
+
+    @Test
+    public void emptyTrimTest() {
+        var map = new IntObjectMap<String>(100);
+        map.trimToSize();
+        Assert.assertEquals(0, map.size());
+        Assert.assertEquals(List.of(), new ArrayList<>(map.values()));
+        map.put(1, "one");
+        Assert.assertEquals("one", map.get(1));
+    }
+
+}
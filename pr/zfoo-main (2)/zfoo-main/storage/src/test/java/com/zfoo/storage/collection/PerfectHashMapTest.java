@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.collection;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 最小完美哈希的构建和查找，包括hashCode冲突和不存在的key
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class PerfectHashMapTest {
+
+    /**
+     * hashCode只有16种，同一个桶中经常有多个hashCode不同但是桶下标相同的key
+     */
+    public static class Key {
+        private final int id;
+
+        public Key(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id & 0xF0F0;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && ((Key) obj).id == id;
+        }
+    }
+
+    @Test
+    public void buildTest() {
+        for (var size : new int[]{1, 2, 3, 4, 5, 17, 100, 1000, 10000}) {
+            var map = new LinkedHashMap<String, Integer>();
+            for (var i = 0; i < size; i++) {
+                map.put("key" + i, i);
+            }
+            var perfectMap = PerfectHashMap.valueOf(map);
+            Assert.assertNotNull(perfectMap);
+            Assert.assertEquals(map, perfectMap);
+            Assert.assertEquals(size, perfectMap.size());
+            for (var i = 0; i < size; i++) {
+                Assert.assertEquals(Integer.valueOf(i), perfectMap.get("key" + i));
+                Assert.assertTrue(perfectMap.containsKey("key" + i));
+            }
+            // 遍历顺序和插入顺序一致
+            Assert.assertEquals(new ArrayList<>(map.keySet()), new ArrayList<>(perfectMap.keySet()));
+            Assert.assertEquals(new ArrayList<>(map.values()), new ArrayList<>(perfectMap.values()));
+        }
+    }
+
+    @Test
+    public void absentKeyTest() {
+        var map = new HashMap<String, Integer>();
+        for (var i = 0; i < 1000; i++) {
+            map.put("key" + i, i);
+        }
+        var perfectMap = PerfectHashMap.valueOf(map);
+        Assert.assertNotNull(perfectMap);
+        for (var i = 1000; i < 10000; i++) {
+            Assert.assertNull(perfectMap.get("key" + i));
+            Assert.assertFalse(perfectMap.containsKey("key" + i));
+        }
+        Assert.assertNull(perfectMap.get(null));
+        Assert.assertNull(perfectMap.get(1));
+        Assert.assertFalse(perfectMap.containsKey(null));
+    }
+
+    @Test
+    public void collidingHashCodeTest() {
+        // 16种不同的hashCode，每个hashCode只有一个key，桶下标冲突的时候需要找到合适的种子
+        var map = new HashMap<Key, Integer>();
+        for (var i = 0; i < 16; i++) {
+            map.put(new Key((i & 0x3) << 4 | (i >> 2) << 12), i);
+        }
+        var perfectMap = PerfectHashMap.valueOf(map);
+        Assert.assertNotNull(perfectMap);
+        Assert.assertEquals(map, perfectMap);
+        // hashCode相同但是不相等的key不存在
+        Assert.assertNull(perfectMap.get(new Key(0xF)));
+        Assert.assertNull(perfectMap.get(new Key(0x10000)));
+    }
+
+    @Test
+    public void sameHashCodeTest() {
+        // "Aa"和"BB"的hashCode相同，无法用哈希函数区分，构建失败返回null，调用方保留原来的Map
+        Assert.assertEquals("Aa".hashCode(), "BB".hashCode());
+        var map = new HashMap<String, Integer>();
+        map.put("Aa", 1);
+        map.put("BB", 2);
+        map.put("C", 3);
+        Assert.assertNull(PerfectHashMap.valueOf(map));
+
+        var keyMap = new HashMap<Key, Integer>();
+        for (var i = 0; i < 100; i++) {
+            keyMap.put(new Key(i), i);
+        }
+        Assert.assertNull(PerfectHashMap.valueOf(keyMap));
+    }
+
+    @Test
+    public void invalidMapTest() {
+        Assert.assertNull(PerfectHashMap.valueOf(Map.of()));
+
+        var nullKey = new HashMap<String, Integer>();
+        nullKey.put(null, 1);
+        nullKey.put("a", 2);
+        Assert.assertNull(PerfectHashMap.valueOf(nullKey));
+
+        var nullValue = new HashMap<String, Integer>();
+        nullValue.put("a", null);
+        Assert.assertNull(PerfectHashMap.valueOf(nullValue));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void readOnlyTest() {
+        var perfectMap = PerfectHashMap.valueOf(Map.of("a", 1, "b", 2));
+        Assert.assertNotNull(perfectMap);
+        perfectMap.put("c", 3);
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.conversion;
+
+import com.zfoo.storage.interpreter.ReadOperation;
+import com.zfoo.storage.interpreter.ResourceInterpreter;
+import com.zfoo.storage.resource.StudentResource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 大表按块并发转换，交给consumer的顺序和结果需要和逐行转换一致，某一块转换失败的时候read抛出异常
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class ChunkedReadTest {
+
+    private static final int ROWS = 1000;
+
+    // 不能整除，最后一块不满
+    private static final int CHUNK_SIZE = 7;
+
+    @Test
+    public void chunkOrderTest() {
+        var csv = csv(-1);
+        var expected = read(csv, ReadOperation.valueOf(0));
+        var thread = Thread.currentThread();
+        var actual = new ArrayList<StudentResource>();
+        ResourceInterpreter.read(new ByteArrayInputStream(csv), StudentResource.class, "csv", it -> {
+            // consumer只在调用read的线程中执行
+            Assert.assertSame(thread, Thread.currentThread());
+            actual.add(it);
+        }, ReadOperation.valueOf(CHUNK_SIZE));
+
+        Assert.assertEquals(ROWS, expected.size());
+        Assert.assertEquals(expected.size(), actual.size());
+        for (var i = 0; i < expected.size(); i++) {
+            var left = expected.get(i);
+            var right = actual.get(i);
+            Assert.assertEquals(i + 1, right.getId());
+            Assert.assertEquals(left.getId(), right.getId());
+            Assert.assertEquals(left.getName(), right.getName());
+            Assert.assertEquals(left.getAge(), right.getAge());
+            Assert.assertEquals(left.getScore(), right.getScore(), 0);
+            Assert.assertArrayEquals(left.getCourses(), right.getCourses());
+        }
+    }
+
+    @Test
+    public void chunkErrorTest() {
+        // 中间某一块中有一行的age不是数字
+        var csv = csv(ROWS / 2);
+        var consumed = new ArrayList<StudentResource>();
+        try {
+            ResourceInterpreter.read(new ByteArrayInputStream(csv), StudentResource.class, "csv", consumed::add, ReadOperation.valueOf(CHUNK_SIZE));
+            Assert.fail();
+        } catch (RuntimeException e) {
+            // 转换失败的块的异常抛到调用read的线程
+        }
+        // 出错的行之后的行不会交给consumer
+        Assert.assertTrue(consumed.size() <= ROWS / 2);
+        for (var i = 0; i < consumed.size(); i++) {
+            Assert.assertEquals(i + 1, consumed.get(i).getId());
+        }
+    }
+
+    private static List<StudentResource> read(byte[] csv, ReadOperation operation) {
+        var result = new ArrayList<StudentResource>();
+        ResourceInterpreter.read(new ByteArrayInputStream(csv), StudentResource.class, "csv", result::add, operation);
+        return result;
+    }
+
+    /**
+     * @param brokenRow 这一行的age写成无法转换的值，小于0表示没有错误的行
+     */
+    private static byte[] csv(int brokenRow) {
+        var builder = new StringBuilder();
+        builder.append("id,name,age,score,courses,users,userList,user\n");
+        builder.append("int,string,int,float,array,array,list,object\n");
+        builder.append("des,des,des,des,des,des,des,des\n");
+        for (var i = 0; i < ROWS; i++) {
+            var age = i == brokenRow ? "abc" : String.valueOf(i % 100);
+            builder.append(i + 1).append(",name").append(i % 10).append(',').append(age).append(',').append(i % 50).append(".5")
+                    .append(",\"[\"\"course").append(i).append("\"\"]\",[],[],{}\n");
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+}
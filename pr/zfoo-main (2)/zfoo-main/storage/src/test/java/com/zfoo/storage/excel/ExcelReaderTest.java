@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.excel;
+
+import com.zfoo.protocol.util.StringUtils;
+import com.zfoo.storage.interpreter.ExcelReader;
+import com.zfoo.storage.util.CellUtils;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * xlsx使用SAX事件流读取，读取的结果需要和使用完整的对象模型加CellUtils读取的结果一致
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class ExcelReaderTest {
+
+    private static final String FILE = "excel/StudentResource.xlsx";
+
+    @Test
+    public void saxParityTest() throws IOException {
+        var resourceData = ExcelReader.readResourceDataFromExcel(new ClassPathResource(FILE).getInputStream(), FILE);
+
+        // 对象模型读取，前三行分别为字段名称，字段类型，描述，id为空的行跳过
+        var names = new ArrayList<String>();
+        var types = new ArrayList<String>();
+        var indexes = new ArrayList<Integer>();
+        var rows = new ArrayList<List<String>>();
+        try (var wb = WorkbookFactory.create(new ClassPathResource(FILE).getInputStream())) {
+            var iterator = wb.getSheetAt(0).iterator();
+            var fieldRow = iterator.next();
+            var typeRow = iterator.next();
+            iterator.next();
+            for (var i = 0; i < fieldRow.getLastCellNum(); i++) {
+                var fieldName = CellUtils.getCellStringValue(fieldRow.getCell(i));
+                var typeName = CellUtils.getCellStringValue(typeRow.getCell(i));
+                if (StringUtils.isEmpty(fieldName) || StringUtils.isEmpty(typeName)) {
+                    continue;
+                }
+                names.add(fieldName);
+                types.add(typeName);
+                indexes.add(i);
+            }
+            while (iterator.hasNext()) {
+                var row = iterator.next();
+                if (StringUtils.isBlank(CellUtils.getCellStringValue(row.getCell(0)))) {
+                    continue;
+                }
+                var values = new ArrayList<String>();
+                for (var index : indexes) {
+                    values.add(CellUtils.getCellStringValue(row.getCell(index)));
+                }
+                rows.add(values);
+            }
+        }
+
+        var headers = resourceData.getHeaders();
+        Assert.assertEquals(names.size(), headers.size());
+        for (var i = 0; i < headers.size(); i++) {
+            Assert.assertEquals(names.get(i), headers.get(i).getName());
+            Assert.assertEquals(types.get(i), headers.get(i).getType());
+            Assert.assertEquals((long) indexes.get(i), headers.get(i).getIndex());
+        }
+
+        Assert.assertFalse(rows.isEmpty());
+        Assert.assertEquals(rows.size(), resourceData.getRows().size());
+        for (var i = 0; i < rows.size(); i++) {
+            Assert.assertEquals("row " + i, rows.get(i), resourceData.getRows().get(i));
+        }
+    }
+
+}
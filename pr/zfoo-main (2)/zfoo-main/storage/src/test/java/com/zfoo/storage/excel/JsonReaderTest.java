@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.excel;
+
+import com.zfoo.protocol.util.JsonUtils;
+import com.zfoo.storage.interpreter.JsonReader;
+import com.zfoo.storage.interpreter.ResourceDataHandler;
+import com.zfoo.storage.model.resource.ResourceData;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+
+/**
+ * json使用流式解析读取，读取的结果需要和整个文件绑定为ResourceData的结果一致，rows在headers之前也一样
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class JsonReaderTest {
+
+    private static final String FILE = "excel/TestResource.json";
+
+    @Test
+    public void streamingParityTest() throws IOException {
+        var expected = JsonReader.readResourceDataFromCSV(new ClassPathResource(FILE).getInputStream());
+        var actual = streamingRead(new ClassPathResource(FILE).getInputStream());
+        assertResourceData(expected, actual);
+    }
+
+    @Test
+    public void rowsBeforeHeadersTest() throws IOException {
+        var expected = JsonReader.readResourceDataFromCSV(new ClassPathResource(FILE).getInputStream());
+
+        // 调换属性的顺序，rows在headers之前，中间再插入一个不认识的属性
+        var reordered = new LinkedHashMap<String, Object>();
+        reordered.put("rows", expected.getRows());
+        reordered.put("unknown", expected.getHeaders());
+        reordered.put("headers", expected.getHeaders());
+        var content = JsonUtils.object2String(reordered).getBytes(StandardCharsets.UTF_8);
+
+        var actual = streamingRead(new ByteArrayInputStream(content));
+        assertResourceData(expected, actual);
+    }
+
+    private ResourceData streamingRead(InputStream input) {
+        var handler = new ResourceDataHandler(FILE);
+        JsonReader.read(input, FILE, handler);
+        return handler.toResourceData();
+    }
+
+    private void assertResourceData(ResourceData expected, ResourceData actual) {
+        Assert.assertEquals(expected.getHeaders().size(), actual.getHeaders().size());
+        for (var i = 0; i < expected.getHeaders().size(); i++) {
+            Assert.assertEquals(expected.getHeaders().get(i).getName(), actual.getHeaders().get(i).getName());
+            Assert.assertEquals(expected.getHeaders().get(i).getType(), actual.getHeaders().get(i).getType());
+            Assert.assertEquals(expected.getHeaders().get(i).getIndex(), actual.getHeaders().get(i).getIndex());
+        }
+
+        Assert.assertFalse(expected.getRows().isEmpty());
+        Assert.assertEquals(expected.getRows().size(), actual.getRows().size());
+        for (var i = 0; i < expected.getRows().size(); i++) {
+            Assert.assertEquals("row " + i, expected.getRows().get(i), actual.getRows().get(i));
+        }
+    }
+
+}
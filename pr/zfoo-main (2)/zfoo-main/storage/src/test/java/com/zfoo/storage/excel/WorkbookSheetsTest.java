@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.excel;
+
+import com.zfoo.storage.interpreter.ReadOperation;
+import com.zfoo.storage.interpreter.ResourceInterpreter;
+import com.zfoo.storage.resource.StudentCsvResource;
+import com.zfoo.storage.resource.StudentResource;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 一个Excel文件中的多个sheet页对应多个资源类，文件只读取一次，没有对应资源类的sheet页跳过
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class WorkbookSheetsTest {
+
+    private static final String[] STUDENT_HEADERS = {"id", "name", "age", "score", "courses", "users", "userList", "user"};
+
+    private static final String[] STUDENT_CSV_HEADERS = {"id", "name", "age", "score", "courses", "users", "user"};
+
+    @Test
+    public void xlsxSheetsTest() throws IOException {
+        assertSheets(new XSSFWorkbook(), "Students.xlsx");
+    }
+
+    @Test
+    public void xlsSheetsTest() throws IOException {
+        assertSheets(new HSSFWorkbook(), "Students.xls");
+    }
+
+    @Test
+    public void missingSheetTest() throws IOException {
+        var content = workbook(new XSSFWorkbook());
+        var sheetClasses = new LinkedHashMap<String, Class<?>>();
+        sheetClasses.put("Student", StudentResource.class);
+        sheetClasses.put("Missing", StudentCsvResource.class);
+        try {
+            ResourceInterpreter.readSheets(new ByteArrayInputStream(content), "Students.xlsx", sheetClasses, it -> obj -> {
+            }, new ReadOperation());
+            Assert.fail();
+        } catch (RuntimeException e) {
+            // 只提示没有找到的sheet页
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("[Missing]"));
+        }
+    }
+
+    private void assertSheets(Workbook workbook, String fileName) throws IOException {
+        var content = workbook(workbook);
+        var sheetClasses = new LinkedHashMap<String, Class<?>>();
+        sheetClasses.put("Student", StudentResource.class);
+        sheetClasses.put("Csv", StudentCsvResource.class);
+        var results = new LinkedHashMap<Class<?>, List<Object>>();
+        ResourceInterpreter.readSheets(new ByteArrayInputStream(content), fileName, sheetClasses, clazz -> {
+            var list = results.computeIfAbsent(clazz, it -> new ArrayList<>());
+            return (Consumer<Object>) list::add;
+        }, new ReadOperation());
+
+        var students = results.get(StudentResource.class);
+        Assert.assertEquals(3, students.size());
+        for (var i = 0; i < students.size(); i++) {
+            var student = (StudentResource) students.get(i);
+            Assert.assertEquals(i + 1, student.getId());
+            Assert.assertEquals("student" + (i + 1), student.getName());
+            Assert.assertEquals(10 + i, student.getAge());
+            Assert.assertEquals(60.5F + i, student.getScore(), 0);
+            Assert.assertArrayEquals(new String[]{"History"}, student.getCourses());
+        }
+
+        var csvStudents = results.get(StudentCsvResource.class);
+        Assert.assertEquals(2, csvStudents.size());
+        for (var i = 0; i < csvStudents.size(); i++) {
+            var student = (StudentCsvResource) csvStudents.get(i);
+            Assert.assertEquals(i + 101, student.getId());
+            Assert.assertEquals("student" + (i + 101), student.getName());
+        }
+    }
+
+    /**
+     * 第一个sheet页没有对应的资源类，后面两个sheet页分别对应两个资源类
+     */
+    private static byte[] workbook(Workbook workbook) throws IOException {
+        try (workbook) {
+            var ignored = workbook.createSheet("Ignored");
+            ignored.createRow(0).createCell(0).setCellValue("not a resource");
+            fillSheet(workbook.createSheet("Student"), STUDENT_HEADERS, 1, 3);
+            fillSheet(workbook.createSheet("Csv"), STUDENT_CSV_HEADERS, 101, 2);
+            var output = new ByteArrayOutputStream();
+            workbook.write(output);
+            return output.toByteArray();
+        }
+    }
+
+    /**
+     * 前三行为字段名称，字段类型，描述；id，age，score为数字单元格，其它为字符串单元格
+     */
+    private static void fillSheet(Sheet sheet, String[] headers, int firstId, int rows) {
+        var types = Map.of("id", "int", "name", "string", "age", "int", "score", "float", "courses", "array", "users", "array", "userList", "list", "user", "object");
+        var nameRow = sheet.createRow(0);
+        var typeRow = sheet.createRow(1);
+        var descRow = sheet.createRow(2);
+        for (var i = 0; i < headers.length; i++) {
+            nameRow.createCell(i).setCellValue(headers[i]);
+            typeRow.createCell(i).setCellValue(types.get(headers[i]));
+            descRow.createCell(i).setCellValue("des");
+        }
+        for (var i = 0; i < rows; i++) {
+            var row = sheet.createRow(i + 3);
+            var id = firstId + i;
+            for (var column = 0; column < headers.length; column++) {
+                var cell = row.createCell(column);
+                switch (headers[column]) {
+                    case "id":
+                        cell.setCellValue(id);
+                        break;
+                    case "name":
+                        cell.setCellValue("student" + id);
+                        break;
+                    case "age":
+                        cell.setCellValue(10 + i);
+                        break;
+                    case "score":
+                        cell.setCellValue(60.5 + i);
+                        break;
+                    case "courses":
+                        cell.setCellValue("[\"History\"]");
+                        break;
+                    case "user":
+                        cell.setCellValue("{}");
+                        break;
+                    default:
+                        cell.setCellValue("[]");
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.export;
+
+import com.zfoo.protocol.util.ReflectionUtils;
+import com.zfoo.storage.interpreter.BinaryFormat;
+import com.zfoo.storage.interpreter.BinaryFormat.BinaryField;
+import com.zfoo.storage.util.FieldAccessor;
+import com.zfoo.storage.util.StringPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 二进制快照中每一种类型标记的写入和读取互逆，跳过的字节数和写入的一致
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class BinaryFormatTest {
+
+    private static final int END = 0x12345678;
+
+    public static class Reward {
+        public int id;
+        public int count;
+        public String name;
+        public Integer boxed;
+
+        public Reward() {
+        }
+
+        public Reward(int id, int count) {
+            this.id = id;
+            this.count = count;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Reward)) {
+                return false;
+            }
+            var reward = (Reward) obj;
+            return id == reward.id && count == reward.count && Objects.equals(name, reward.name) && Objects.equals(boxed, reward.boxed);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, count, name, boxed);
+        }
+    }
+
+    /**
+     * 对象中嵌套的集合，Map和引用自己类型的属性
+     */
+    public static class Node {
+        public String name;
+        public Set<String> tags;
+        public Map<String, List<Integer>> values;
+        public Reward[] rewards;
+        public Node child;
+        public TimeUnit unit;
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Node)) {
+                return false;
+            }
+            var node = (Node) obj;
+            return Objects.equals(name, node.name) && Objects.equals(tags, node.tags) && Objects.equals(values, node.values)
+                    && Arrays.equals(rewards, node.rewards) && Objects.equals(child, node.child) && unit == node.unit;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, tags, values, child, unit);
+        }
+    }
+
+    public static class AllTypes {
+        public int intValue = Integer.MIN_VALUE;
+        public long longValue = Long.MAX_VALUE;
+        public short shortValue = Short.MIN_VALUE;
+        public byte byteValue = -1;
+        public float floatValue = 1.5F;
+        public double doubleValue = -0.25D;
+        public boolean booleanValue = true;
+        public char charValue = '中';
+        public Integer boxedInt = 1;
+        public Long boxedLong = 2L;
+        public Short boxedShort = 3;
+        public Byte boxedByte = 4;
+        public Float boxedFloat = 5.5F;
+        public Double boxedDouble = 6.5D;
+        public Boolean boxedBoolean = false;
+        public Character boxedChar = 'a';
+        public String string = "配置表";
+        public String emptyString = "";
+        public TimeUnit enumValue = TimeUnit.SECONDS;
+        public Date date = new Date(1700000000123L);
+        public LocalDate localDate = LocalDate.of(2024, 2, 29);
+        public LocalDateTime localDateTime = LocalDateTime.of(2024, 2, 29, 23, 59, 59, 123456789);
+        public LocalTime localTime = LocalTime.of(12, 30, 15, 1000);
+        public Class<?> clazz = Reward.class;
+        public Class<?> primitiveClass = int.class;
+        public Class<?> arrayClass = String[].class;
+        public int[] array = new int[]{1, 2, 3};
+        public String[] stringArray = new String[]{"a", "b"};
+        public List<Integer> list = List.of(1, 2, 3);
+        public Map<String, Integer> map = Map.of("a", 1);
+        public UUID uuid = UUID.fromString("123e4567-e89b-12d3-a456-426614174000");
+        public BigDecimal decimal = new BigDecimal("12345678901234567890.125");
+        public Reward reward = new Reward(1, 100);
+        public Reward[] rewardArray = new Reward[]{new Reward(1, 1), null, new Reward(2, 2)};
+        public List<Reward> rewardList = Arrays.asList(new Reward(3, 3), null);
+        public Map<Integer, Reward> rewardMap = Map.of(1, new Reward(4, 4));
+        public Node node = createNode();
+    }
+
+    private static Node createNode() {
+        var child = new Node();
+        child.name = "child";
+        child.values = new LinkedHashMap<>();
+        child.values.put("empty", List.of());
+        child.values.put("null", null);
+        var node = new Node();
+        node.name = "root";
+        node.tags = new HashSet<>(List.of("a", "b"));
+        node.values = new LinkedHashMap<>(Map.of("list", List.of(1, 2)));
+        node.rewards = new Reward[]{new Reward(5, 5)};
+        node.child = child;
+        node.unit = TimeUnit.DAYS;
+        return node;
+    }
+
+    /**
+     * 无法按属性还原的类型，仍然使用json
+     */
+    public static class JsonTypes {
+        public List<UUID> uuidList = List.of(UUID.randomUUID());
+        public Object object = "object";
+        public List<List<Integer>> nestedList = List.of(List.of(1));
+    }
+
+    @Test
+    public void roundTripTest() throws Exception {
+        var instance = new AllTypes();
+
+        var tags = new HashSet<Byte>();
+        for (var field : ReflectionUtils.notStaticAndTransientFields(AllTypes.class)) {
+            var value = FieldAccessor.valueOf(field).get(instance);
+            Assert.assertNotNull(field.getName(), value);
+            var actual = roundTrip(field, value);
+            Assert.assertTrue(field.getName(), Objects.deepEquals(value, actual));
+            tags.add(BinaryFormat.tagOf(field));
+        }
+
+        // 每一种类型标记都需要覆盖到
+        for (var tagField : BinaryFormat.class.getFields()) {
+            if (tagField.getType() == byte.class && !"BOXED".equals(tagField.getName())) {
+                var tag = tagField.getByte(null);
+                Assert.assertTrue(tagField.getName(), tags.contains(tag));
+                if (tag < BinaryFormat.BOXED) {
+                    Assert.assertTrue(tagField.getName(), tags.contains((byte) (tag + BinaryFormat.BOXED)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void compositeTest() throws Exception {
+        var instance = new AllTypes();
+        for (var name : List.of("array", "stringArray", "list", "map", "reward", "rewardArray", "rewardList", "rewardMap", "node")) {
+            Assert.assertEquals(name, BinaryFormat.COMPOSITE, BinaryFormat.tagOf(AllTypes.class.getField(name)));
+        }
+        for (var field : ReflectionUtils.notStaticAndTransientFields(JsonTypes.class)) {
+            Assert.assertEquals(field.getName(), BinaryFormat.JSON, BinaryFormat.tagOf(field));
+        }
+
+        // 和JsonToListConverter一样，List属性是只读的；对象中的集合是jackson默认的类型
+        var rewardList = (List<?>) roundTrip(AllTypes.class.getField("rewardList"), instance.rewardList);
+        try {
+            rewardList.clear();
+            Assert.fail();
+        } catch (UnsupportedOperationException e) {
+        }
+        var node = (Node) roundTrip(AllTypes.class.getField("node"), instance.node);
+        Assert.assertEquals(HashSet.class, node.tags.getClass());
+        Assert.assertEquals(LinkedHashMap.class, node.values.getClass());
+        Assert.assertEquals(new ArrayList<>(instance.node.child.values.keySet()), new ArrayList<>(node.child.values.keySet()));
+
+        // 对象中的属性改变之后，快照头部的类型描述也会改变
+        var typeName = BinaryFormat.typeName(AllTypes.class.getField("rewardList"), BinaryFormat.COMPOSITE);
+        Assert.assertTrue(typeName, typeName.contains("count:int") && typeName.contains("boxed:java.lang.Integer"));
+    }
+
+    @Test
+    public void nullTest() throws IOException {
+        for (var field : ReflectionUtils.notStaticAndTransientFields(AllTypes.class)) {
+            if (field.getType().isPrimitive()) {
+                continue;
+            }
+            Assert.assertNull(field.getName(), roundTrip(field, null));
+        }
+    }
+
+    /**
+     * 写入一个值再读取出来，同时检查skip跳过的字节数
+     */
+    private Object roundTrip(Field field, Object value) throws IOException {
+        var tag = BinaryFormat.tagOf(field);
+        var binaryField = new BinaryField(field.getName(), tag, BinaryFormat.typeName(field, tag), field);
+        var bytes = new ByteArrayOutputStream();
+        var output = new DataOutputStream(bytes);
+        binaryField.write(output, value);
+        output.writeInt(END);
+        binaryField.write(output, value);
+        output.writeInt(END);
+        output.flush();
+
+        var input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        binaryField.skip(input);
+        Assert.assertEquals(field.getName(), END, input.readInt());
+        var result = binaryField.readValue(input, StringPool.NONE);
+        Assert.assertEquals(field.getName(), END, input.readInt());
+        return result;
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.manager;
+
+import com.zfoo.storage.model.config.StorageConfig;
+import com.zfoo.storage.resource.StudentCsvResource;
+import com.zfoo.storage.resource.StudentResource;
+import com.zfoo.storage.resource.TestResource;
+import com.zfoo.storage.resource.User;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+
+/**
+ * 资源目录只遍历一次建立文件名的索引，每个资源类在索引中查找自己的配置文件，查找的规则和以前的{SimpleName}.*通配符一致
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class ResourceFileIndexTest {
+
+    @Test
+    public void resourceFileIndexTest() throws IOException {
+        var dir = Files.createTempDirectory("storage-resource");
+        try {
+            // 根目录中的文件，子目录中的文件，不是配置表的文件，和配置表放在一起的二进制快照，两个目录中的同名配置表
+            touch(dir.resolve("StudentResource.xlsx"));
+            touch(dir.resolve("snapshot/StudentResource.bin"));
+            touch(dir.resolve("sub/deeper/StudentCsvResource.csv"));
+            touch(dir.resolve("sub/README.txt"));
+            touch(dir.resolve("TestResource.json"));
+            touch(dir.resolve("other/TestResource.csv"));
+
+            var storageConfig = new StorageConfig();
+            storageConfig.setResourceLocations(new String[]{dir.toUri().toString()});
+            var storageManager = new StorageManager();
+            storageManager.setStorageConfig(storageConfig);
+
+            var resourceFileMap = storageManager.scanResourceFiles();
+            Assert.assertEquals(2, resourceFileMap.get("StudentResource").size());
+            Assert.assertEquals(1, resourceFileMap.get("StudentCsvResource").size());
+            Assert.assertEquals(2, resourceFileMap.get("TestResource").size());
+            Assert.assertFalse(resourceFileMap.containsKey("README"));
+
+            // 快照和原来的配置表同时存在的时候使用原来的配置表
+            Assert.assertEquals("StudentResource.xlsx", storageManager.scanResourceFile(StudentResource.class, resourceFileMap).getFilename());
+            Assert.assertEquals("StudentCsvResource.csv", storageManager.scanResourceFile(StudentCsvResource.class, resourceFileMap).getFilename());
+
+            // 重复的配置文件
+            try {
+                storageManager.scanResourceFile(TestResource.class, resourceFileMap);
+                Assert.fail();
+            } catch (RuntimeException e) {
+                Assert.assertTrue(e.getMessage().contains("TestResource"));
+            }
+
+            // 没有配置文件
+            try {
+                storageManager.scanResourceFile(User.class, resourceFileMap);
+                Assert.fail();
+            } catch (RuntimeException e) {
+                Assert.assertTrue(e.getMessage().contains("User"));
+            }
+        } finally {
+            try (var paths = Files.walk(dir)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    private static void touch(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.createFile(file);
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.manager;
+
+import com.zfoo.storage.model.vo.ResourceDef;
+import com.zfoo.storage.model.vo.Storage;
+import com.zfoo.storage.resource.StudentCsvResource;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 连续多次保存只重新加载一次，内容没有改变的保存不重新加载，重新加载失败的文件再次保存的时候会重试
+ * <p>
+ * 使用真实的文件和时间，检查间隔为500毫秒，最后一次修改之后稳定1000毫秒才重新加载
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class StorageWatcherTest {
+
+    private static final String FILE = "excel/StudentCsvResource.csv";
+
+    // 足够完成一次检查，稳定等待和重新加载的时间
+    private static final long RELOAD_TIMEOUT = 5000;
+
+    // 确认没有重新加载的等待时间，大于检查间隔加上稳定等待的时间
+    private static final long QUIET_TIME = 2500;
+
+    /**
+     * 只记录重新加载，不真正的读取配置文件
+     */
+    private static class RecordingStorageManager extends StorageManager {
+        private final AtomicInteger reloadCount = new AtomicInteger();
+        private final AtomicInteger failCount = new AtomicInteger();
+        private volatile String reloadThread;
+
+        @Override
+        public synchronized void reloadStorages(Collection<Class<?>> clazzList) {
+            Assert.assertEquals(List.of(StudentCsvResource.class), List.copyOf(clazzList));
+            reloadThread = Thread.currentThread().getName();
+            reloadCount.incrementAndGet();
+            if (failCount.getAndUpdate(it -> Math.max(0, it - 1)) > 0) {
+                throw new RuntimeException("reload failed");
+            }
+        }
+    }
+
+    @Test
+    public void debounceAndHashTest() throws Exception {
+        var dir = Files.createTempDirectory("storage-watch");
+        var file = dir.resolve("StudentCsvResource.csv");
+        var content = new String(new ClassPathResource(FILE).getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        Files.writeString(file, content);
+
+        var storageManager = new RecordingStorageManager();
+        var storage = new Storage<Integer, StudentCsvResource>();
+        storage.init(Files.newInputStream(file), StudentCsvResource.class, "csv");
+        storageManager.storageMap().put(StudentCsvResource.class, storage);
+
+        var watcher = new StorageWatcher(storageManager, List.of(new ResourceDef(StudentCsvResource.class, new FileSystemResource(file.toFile()))));
+        watcher.start();
+        try {
+            // 连续保存多次，每次间隔小于稳定等待的时间，只重新加载一次
+            for (var i = 0; i < 5; i++) {
+                Files.writeString(file, content + "\n".repeat(i + 1));
+                Thread.sleep(200);
+            }
+            Assert.assertTrue(waitFor(() -> storageManager.reloadCount.get() == 1, RELOAD_TIMEOUT));
+            Thread.sleep(QUIET_TIME);
+            Assert.assertEquals(1, storageManager.reloadCount.get());
+            Assert.assertEquals("storage-reloader", storageManager.reloadThread);
+
+            // 内容没有改变，只是重新保存，不重新加载
+            var lastContent = Files.readString(file);
+            Files.writeString(file, lastContent);
+            Thread.sleep(QUIET_TIME);
+            Assert.assertEquals(1, storageManager.reloadCount.get());
+
+            // 重新加载失败的时候不记录hash，再次保存同样的内容还会重新加载
+            storageManager.failCount.set(1);
+            Files.writeString(file, content);
+            Assert.assertTrue(waitFor(() -> storageManager.reloadCount.get() == 2, RELOAD_TIMEOUT));
+            Files.writeString(file, content);
+            Assert.assertTrue(waitFor(() -> storageManager.reloadCount.get() == 3, RELOAD_TIMEOUT));
+
+            // 重新加载成功之后记录了hash
+            Files.writeString(file, content);
+            Thread.sleep(QUIET_TIME);
+            Assert.assertEquals(3, storageManager.reloadCount.get());
+        } finally {
+            watcher.stop();
+            try (var paths = Files.walk(dir)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    @Test
+    public void notLoadedTest() throws Exception {
+        var dir = Files.createTempDirectory("storage-watch");
+        var file = dir.resolve("StudentCsvResource.csv");
+        var content = new String(new ClassPathResource(FILE).getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        Files.writeString(file, content);
+
+        // 懒加载还没有加载的配置表在第一次访问的时候会读取新的文件，不需要重新加载
+        var storageManager = new RecordingStorageManager();
+        var storage = new Storage<Integer, StudentCsvResource>();
+        storage.initLazy(StudentCsvResource.class, () -> {
+            throw new IllegalStateException();
+        });
+        storageManager.storageMap().put(StudentCsvResource.class, storage);
+
+        var watcher = new StorageWatcher(storageManager, List.of(new ResourceDef(StudentCsvResource.class, new FileSystemResource(file.toFile()))));
+        watcher.start();
+        try {
+            Files.writeString(file, content + "\n");
+            Thread.sleep(QUIET_TIME);
+            Assert.assertEquals(0, storageManager.reloadCount.get());
+        } finally {
+            watcher.stop();
+            try (var paths = Files.walk(dir)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    private static boolean waitFor(BooleanSupplier condition, long timeout) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + timeout;
+        while (System.currentTimeMillis() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(50);
+        }
+        return condition.getAsBoolean();
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.processor;
+
+import com.zfoo.storage.model.anno.Resource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 增量编译的时候合并以前的索引，已经删除或者去掉了@Resource注解的类不再保留在索引中
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class ResourceIndexProcessorTest {
+
+    private static final String PACKAGE = "com.zfoo.storage.processor.index";
+
+    @Test
+    public void staleIndexTest() throws Exception {
+        var dir = Files.createTempDirectory("storage-index");
+        try {
+            var sourceDir = dir.resolve("src");
+            var outputDir = dir.resolve("classes");
+            Files.createDirectories(sourceDir);
+            Files.createDirectories(outputDir);
+
+            // 第一次完整编译
+            compile(outputDir, source(sourceDir, "ResourceA", true), source(sourceDir, "ResourceB", true));
+            Assert.assertEquals(List.of(PACKAGE + ".ResourceA", PACKAGE + ".ResourceB"), readIndex(outputDir));
+
+            // 增量编译，B去掉了@Resource注解，A没有重新编译仍然保留
+            compile(outputDir, source(sourceDir, "ResourceB", false), source(sourceDir, "ResourceC", true));
+            Assert.assertEquals(List.of(PACKAGE + ".ResourceA", PACKAGE + ".ResourceC"), readIndex(outputDir));
+
+            // 增量编译，A被删除了
+            Files.delete(sourceDir.resolve("ResourceA.java"));
+            Files.delete(outputDir.resolve(PACKAGE.replace('.', File.separatorChar)).resolve("ResourceA.class"));
+            compile(outputDir, source(sourceDir, "ResourceD", true));
+            Assert.assertEquals(List.of(PACKAGE + ".ResourceC", PACKAGE + ".ResourceD"), readIndex(outputDir));
+        } finally {
+            try (var paths = Files.walk(dir)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    private static Path source(Path sourceDir, String className, boolean resource) throws IOException {
+        var content = "package " + PACKAGE + ";\n"
+                + (resource ? "@" + Resource.class.getName() + "\n" : "")
+                + "public class " + className + " {\n"
+                + "}\n";
+        var sourceFile = sourceDir.resolve(className + ".java");
+        Files.writeString(sourceFile, content);
+        return sourceFile;
+    }
+
+    /**
+     * 只编译给出的源文件，以前编译出来的类通过classpath引用，和增量编译一样
+     */
+    private static void compile(Path outputDir, Path... sourceFiles) throws Exception {
+        var storageClasses = Paths.get(Resource.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        var args = new ArrayList<String>();
+        args.add("-implicit:none");
+        args.add("-processor");
+        args.add(ResourceIndexProcessor.class.getName());
+        args.add("-processorpath");
+        args.add(storageClasses);
+        args.add("-cp");
+        args.add(storageClasses + File.pathSeparator + outputDir);
+        args.add("-d");
+        args.add(outputDir.toString());
+        for (var sourceFile : sourceFiles) {
+            args.add(sourceFile.toString());
+        }
+        var result = ToolProvider.getSystemJavaCompiler().run(null, null, null, args.toArray(new String[0]));
+        Assert.assertEquals(0, result);
+    }
+
+    private static List<String> readIndex(Path outputDir) throws IOException {
+        var index = outputDir.resolve(ResourceIndexProcessor.INDEX_LOCATION);
+        return Files.readAllLines(index, StandardCharsets.UTF_8).stream()
+                .map(String::trim)
+                .filter(it -> !it.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+}
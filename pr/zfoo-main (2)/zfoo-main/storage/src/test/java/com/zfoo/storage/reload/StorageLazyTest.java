@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.reload;
+
+import com.zfoo.storage.model.vo.Storage;
+import com.zfoo.storage.resource.StudentResource;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 懒加载的配置表在第一次访问的时候才加载，并发的第一次访问也只加载一次
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class StorageLazyTest {
+
+    private static final String FILE = "excel/StudentResource.xlsx";
+
+    private static final int THREADS = 8;
+
+    @Test
+    public void lazyFirstAccessTest() throws Exception {
+        var loadCount = new AtomicInteger();
+        var storage = new Storage<Integer, StudentResource>();
+        storage.initLazy(StudentResource.class, () -> {
+            loadCount.incrementAndGet();
+            var loaded = new Storage<Integer, StudentResource>();
+            try {
+                loaded.init(new ClassPathResource(FILE).getInputStream(), StudentResource.class, "xlsx");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return loaded;
+        });
+
+        // 初始化的时候不读取配置文件
+        Assert.assertEquals(0, loadCount.get());
+        Assert.assertFalse(storage.isLoaded());
+        Assert.assertFalse(storage.isRecycled());
+
+        // 多个线程同时第一次访问
+        var executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            var start = new CountDownLatch(1);
+            var futures = new ArrayList<Future<Integer>>();
+            for (var i = 0; i < THREADS; i++) {
+                futures.add(executor.submit((Callable<Integer>) () -> {
+                    start.await();
+                    return storage.size();
+                }));
+            }
+            start.countDown();
+            for (var future : futures) {
+                Assert.assertTrue(future.get() > 0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(1, loadCount.get());
+        Assert.assertTrue(storage.isLoaded());
+
+        // 加载完成之后的读取不再调用loader
+        var expected = new Storage<Integer, StudentResource>();
+        expected.init(new ClassPathResource(FILE).getInputStream(), StudentResource.class, "xlsx");
+        Assert.assertEquals(expected.size(), storage.size());
+        for (var resource : expected.getAll()) {
+            Assert.assertEquals(resource.getName(), storage.get(resource.getId()).getName());
+        }
+        var first = expected.getAll().iterator().next();
+        Assert.assertEquals(expected.getIndex("name", first.getName()).size(), storage.getIndex("name", first.getName()).size());
+        Assert.assertEquals(1, loadCount.get());
+    }
+
+}
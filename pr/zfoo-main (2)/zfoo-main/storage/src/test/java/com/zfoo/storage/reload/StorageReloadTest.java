@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.storage.reload;
+
+import com.zfoo.storage.model.vo.Storage;
+import com.zfoo.storage.resource.StudentResource;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * 重新加载配置表失败的时候，已经发布的数据保持不变
+ *
+ * @author godotg
+ * @version 4.0
+ */
+public class StorageReloadTest {
+
+    private static final String FILE = "excel/StudentResource.xlsx";
+
+    // 前两行可以正常放入，第三行的id重复，加载到一半失败
+    private static final String BROKEN_CSV = "id,name,age,score,courses,users,userList,user\n"
+            + "int,string,int,float,array,array,list,object\n"
+            + "des,des,des,des,des,des,des,des\n"
+            + "1,a,1,60.5,[],[],[],{}\n"
+            + "2,b,2,70.5,[],[],[],{}\n"
+            + "1,c,3,80.5,[],[],[],{}\n";
+
+    @Test
+    public void failedReloadTest() throws IOException {
+        var storage = new Storage<Integer, StudentResource>();
+        storage.init(new ClassPathResource(FILE).getInputStream(), StudentResource.class, "xlsx");
+
+        var oldValues = new ArrayList<>(storage.getAll());
+        Assert.assertFalse(oldValues.isEmpty());
+        var first = oldValues.get(0);
+        var nameIndex = storage.getIndex("name", first.getName());
+
+        try {
+            storage.init(new ByteArrayInputStream(BROKEN_CSV.getBytes(StandardCharsets.UTF_8)), StudentResource.class, "csv");
+            Assert.fail();
+        } catch (RuntimeException e) {
+            // 重复的id加载失败
+        }
+
+        Assert.assertEquals(oldValues.size(), storage.size());
+        Assert.assertEquals(oldValues, new ArrayList<>(storage.getAll()));
+        Assert.assertSame(first, storage.get(first.getId()));
+        Assert.assertEquals(nameIndex, storage.getIndex("name", first.getName()));
+
+        // 失败之后仍然可以正常的重新加载
+        storage.init(new ClassPathResource(FILE).getInputStream(), StudentResource.class, "xlsx");
+        Assert.assertEquals(oldValues.size(), storage.size());
+        Assert.assertNotSame(first, storage.get(first.getId()));
+    }
+
+}